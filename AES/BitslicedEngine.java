@@ -0,0 +1,230 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Bitsliced encryption for the simplified variant, 64 blocks per pass.
+ *
+ * The 64 blocks are transposed into 128 {@code long} bit-planes: plane
+ * {@code 8 * i + b} holds bit b of state byte i, with block j in bit j of
+ * the long. Every round function then becomes plain AND/XOR/NOT logic on
+ * whole planes, applied to all 64 blocks at once:
+ *
+ * - SubBytes: the simplified S-Box only reads the low nibble, so each
+ *   output bit is a fixed boolean function of 4 input planes
+ * - ShiftRows: a renaming of planes, folded into SubBytes
+ * - MixColumns: xtime is a shift of planes plus XORs with the top plane
+ * - AddRoundKey: XOR each plane with all-zeros or all-ones
+ *
+ * There are no table lookups and no data-dependent memory accesses.
+ * Decryption is not bitsliced and goes to the table engine.
+ */
+final class BitslicedEngine implements BlockEngine {
+    private static final int Nb = 4;
+    private static final int Nr = 10;
+
+    // Blocks processed per pass, one per bit of a long
+    private static final int BATCH = 64;
+
+    // Reads and writes 8 block bytes at once, byte 0 in the low bits
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static final BitslicedEngine INSTANCE = new BitslicedEngine();
+
+    // Per-thread state and round scratch planes, so bulk callers that come
+    // back in small chunks do not allocate
+    private static final ThreadLocal<long[][]> SCRATCH = ThreadLocal.withInitial(() -> new long[2][128]);
+
+    private BitslicedEngine() {
+    }
+
+    @Override
+    public String name() {
+        return "bitsliced";
+    }
+
+    @Override
+    public boolean supports(SimplifiedAES128.Variant variant) {
+        return variant == SimplifiedAES128.Variant.SIMPLIFIED;
+    }
+
+    @Override
+    public Object prepareKey(int[] w) {
+        return keyPlanes(w);
+    }
+
+    /**
+     * Encrypts whole batches of 64 blocks bitsliced. A pass costs the same
+     * for one block as for 64, so the remainder goes to the table engine.
+     */
+    @Override
+    public void encryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        if (blocks >= BATCH) {
+            long[] keyPlanes = (long[]) cipher.preparedKey(this);
+            long[][] scratch = SCRATCH.get();
+            long[] planes = scratch[0];
+            for (; blocks >= BATCH; blocks -= BATCH, inOff += BATCH * 16, outOff += BATCH * 16) {
+                load(in, inOff, planes);
+                encryptPlanes(keyPlanes, planes, scratch[1]);
+                store(planes, out, outOff);
+            }
+        }
+        TableEngine.INSTANCE.encryptBlocks(cipher, in, inOff, out, outOff, blocks);
+    }
+
+    @Override
+    public void decryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        TableEngine.INSTANCE.decryptBlocks(cipher, in, inOff, out, outOff, blocks);
+    }
+
+    /**
+     * Runs all rounds on a transposed state
+     */
+    private static void encryptPlanes(long[] keyPlanes, long[] s, long[] t) {
+        addRoundKey(s, keyPlanes, 0);
+        for (int round = 1; round < Nr; round++) {
+            subShift(s, t);
+            mixColumns(t, s);
+            addRoundKey(s, keyPlanes, round * 128);
+        }
+        subShift(s, t);
+        addRoundKey(t, keyPlanes, Nr * 128);
+        System.arraycopy(t, 0, s, 0, 128);
+    }
+
+    /**
+     * Spreads every round key bit over a whole plane: all ones where the
+     * bit is set, so AddRoundKey is one XOR per plane
+     */
+    private static long[] keyPlanes(int[] w) {
+        long[] planes = new long[(Nr + 1) * 128];
+        for (int i = 0; i < (Nr + 1) * Nb; i++) {
+            int word = w[i];
+            for (int r = 0; r < 4; r++) {
+                int keyByte = word >>> (24 - 8 * r);
+                for (int b = 0; b < 8; b++) {
+                    planes[(i * 4 + r) * 8 + b] = -(long) ((keyByte >>> b) & 1);
+                }
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * XORs one round's key planes into the state
+     */
+    private static void addRoundKey(long[] s, long[] keyPlanes, int off) {
+        for (int p = 0; p < 128; p++) {
+            s[p] ^= keyPlanes[off + p];
+        }
+    }
+
+    /**
+     * SubBytes and ShiftRows from s into t. Byte (row r, column c) of the
+     * result is the S-Box of byte (r, (c + r) % 4) of the input.
+     */
+    private static void subShift(long[] s, long[] t) {
+        for (int c = 0; c < 4; c++) {
+            for (int r = 0; r < 4; r++) {
+                sbox(s, (((c + r) & 3) * 4 + r) * 8, t, (c * 4 + r) * 8);
+            }
+        }
+    }
+
+    /**
+     * Simplified S-Box on one byte's planes. Each output bit is the
+     * algebraic normal form of that bit of SBox over the input nibble
+     * x3..x0, derived by Moebius transform of the 16 table entries.
+     */
+    private static void sbox(long[] s, int in, long[] t, int out) {
+        long x0 = s[in], x1 = s[in + 1], x2 = s[in + 2], x3 = s[in + 3];
+        long x01 = x0 & x1, x02 = x0 & x2, x03 = x0 & x3;
+        long x12 = x1 & x2, x13 = x1 & x3, x23 = x2 & x3;
+        long x012 = x01 & x2, x013 = x01 & x3, x023 = x02 & x3, x123 = x12 & x3;
+        long x0123 = x012 & x3;
+
+        t[out]     = ~(x0 ^ x01 ^ x2 ^ x12 ^ x3 ^ x13 ^ x23 ^ x123 ^ x0123);
+        t[out + 1] = ~(x0 ^ x01 ^ x02 ^ x3 ^ x03 ^ x13 ^ x013 ^ x23 ^ x023 ^ x123);
+        t[out + 2] = x0 ^ x1 ^ x02 ^ x03 ^ x013 ^ x23 ^ x023;
+        t[out + 3] = x0 ^ x12 ^ x03 ^ x013 ^ x23 ^ x023 ^ x123 ^ x0123;
+        t[out + 4] = x0 ^ x1 ^ x01 ^ x2 ^ x3 ^ x23 ^ x023;
+        t[out + 5] = ~(x012 ^ x03 ^ x013 ^ x0123);
+        t[out + 6] = ~(x3 ^ x13 ^ x013 ^ x23);
+        t[out + 7] = x2 ^ x02 ^ x12 ^ x023 ^ x123 ^ x0123;
+    }
+
+    /**
+     * Simplified MixColumns from t into s. Row r of a column becomes
+     * 2*a_r ^ a_r ^ (a0 ^ a1 ^ a2 ^ a3), i.e. 2,1,1,1 circulant.
+     */
+    private static void mixColumns(long[] t, long[] s) {
+        for (int c = 0; c < 4; c++) {
+            int p0 = c * 32;
+            for (int b = 0; b < 8; b++) {
+                long sum = t[p0 + b] ^ t[p0 + 8 + b] ^ t[p0 + 16 + b] ^ t[p0 + 24 + b];
+                s[p0 + b] = sum;
+                s[p0 + 8 + b] = sum;
+                s[p0 + 16 + b] = sum;
+                s[p0 + 24 + b] = sum;
+            }
+            for (int r = 0; r < 4; r++) {
+                int p = p0 + r * 8;
+                long a0 = t[p], a1 = t[p + 1], a2 = t[p + 2], a3 = t[p + 3];
+                long a4 = t[p + 4], a5 = t[p + 5], a6 = t[p + 6], a7 = t[p + 7];
+                // a ^ xtime(a), xtime reducing by 0x1b
+                s[p]     ^= a0 ^ a7;
+                s[p + 1] ^= a1 ^ a0 ^ a7;
+                s[p + 2] ^= a2 ^ a1;
+                s[p + 3] ^= a3 ^ a2 ^ a7;
+                s[p + 4] ^= a4 ^ a3 ^ a7;
+                s[p + 5] ^= a5 ^ a4;
+                s[p + 6] ^= a6 ^ a5;
+                s[p + 7] ^= a7 ^ a6;
+            }
+        }
+    }
+
+    /**
+     * Reads a batch of blocks and transposes them into planes. Bytes 0-7
+     * of every block form one 64x64 bit matrix, bytes 8-15 the other.
+     */
+    private static void load(byte[] in, int off, long[] planes) {
+        for (int j = 0; j < BATCH; j++) {
+            int o = off + j * 16;
+            planes[j] = (long) LONG_LE.get(in, o);
+            planes[64 + j] = (long) LONG_LE.get(in, o + 8);
+        }
+        transpose64(planes, 0);
+        transpose64(planes, 64);
+    }
+
+    /**
+     * Transposes the planes back and writes the batch of blocks
+     */
+    private static void store(long[] planes, byte[] out, int off) {
+        transpose64(planes, 0);
+        transpose64(planes, 64);
+        for (int j = 0; j < BATCH; j++) {
+            int o = off + j * 16;
+            LONG_LE.set(out, o, planes[j]);
+            LONG_LE.set(out, o + 8, planes[64 + j]);
+        }
+    }
+
+    /**
+     * In-place transpose of the 64x64 bit matrix a[off..off+63], where
+     * bit k of a[j] moves to bit j of a[k]. Swaps ever smaller
+     * off-diagonal blocks (Hacker's Delight, 7-3).
+     */
+    private static void transpose64(long[] a, int off) {
+        long m = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>>= 1, m ^= m << j) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long t = ((a[off + k] >>> j) ^ a[off + k + j]) & m;
+                a[off + k] ^= t << j;
+                a[off + k + j] ^= t;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Block function behind SimplifiedAES128.
+ *
+ * A cipher instance owns the key schedule and hands itself to its engine
+ * for every call; the engine owns the round logic. Engines are stateless
+ * singletons and must be safe to call from any number of threads.
+ * Engines that want the key in another shape derive it once per cipher
+ * through {@link #prepareKey(int[])} and read it back with
+ * {@link SimplifiedAES128#preparedKey(BlockEngine)}.
+ *
+ * Which engine a cipher gets is decided by {@link BlockEngines}.
+ */
+interface BlockEngine {
+
+    /**
+     * @return Short name used in reports and in the aes.engine property
+     */
+    String name();
+
+    /**
+     * @return Whether this engine implements the given variant
+     */
+    boolean supports(SimplifiedAES128.Variant variant);
+
+    /**
+     * Derives this engine's per-key data from the expanded key
+     * @param w Key schedule, one big-endian int per column
+     * @return Per-key data, or null when the engine reads w directly
+     */
+    default Object prepareKey(int[] w) {
+        return null;
+    }
+
+    /**
+     * Encrypts consecutive 16-byte blocks (ECB).
+     * Input and output may be the same region.
+     * @param cipher The keyed cipher, which supplies the key schedule
+     */
+    void encryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks);
+
+    /**
+     * Decrypts consecutive 16-byte blocks (ECB).
+     * Input and output may be the same region.
+     * @param cipher The keyed cipher, which supplies the key schedule
+     */
+    void decryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks);
+}
@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Chooses the block engine for each cipher variant.
+ *
+ * Ciphers start on the table engine. On first use of a variant a daemon
+ * thread times every other candidate engine on repeated bulk encryptions
+ * and decryptions, since the chosen engine serves both, and switches the
+ * variant to the one with the least combined time; ciphers that already
+ * exist follow the switch on their next call. Each engine is warmed up for
+ * a fixed number of runs before it is timed, because the Vector API is
+ * orders of magnitude slower until C2 has compiled it. The time cap per
+ * engine keeps the whole calibration to two seconds at most, so the choice
+ * settles near startup. An engine still cold at the cap simply loses; on a
+ * one- or two-core machine that can be the Vector API engine, which then
+ * needs a larger aes.engine.calibrationMillis to be picked.
+ * The reference engine is never picked automatically.
+ *
+ * The choice and the measured rates are logged at INFO on the
+ * "SimplifiedAES128" System.Logger for every variant, including when there
+ * is only one candidate, and returned by
+ * {@link #report(SimplifiedAES128.Variant)}.
+ *
+ * System properties:
+ *   aes.engine                     use this engine (reference, table,
+ *                                  nibble, bitsliced, vector) for every variant it
+ *                                  supports, skipping calibration
+ *   aes.engine.calibrationMillis   time cap per engine (default 500)
+ */
+final class BlockEngines {
+    static final String ENGINE_PROPERTY = "aes.engine";
+    static final String CALIBRATION_PROPERTY = "aes.engine.calibrationMillis";
+
+    // Bytes encrypted per calibration run, one bitsliced batch
+    private static final int CALIBRATION_BYTES = 1024;
+
+    // Untimed runs per engine before measuring, enough for C2 to compile
+    // even the Vector API engine
+    private static final int WARMUP_RUNS = 5000;
+
+    // Length of the timed phase per engine and direction
+    private static final long MEASURE_NANOS = 20_000_000L;
+
+    // Default time cap per engine in milliseconds
+    private static final long DEFAULT_CALIBRATION_MILLIS = 500;
+
+    private static final System.Logger LOG = System.getLogger("SimplifiedAES128");
+
+    private static final List<BlockEngine> AVAILABLE = discover();
+
+    private BlockEngines() {
+    }
+
+    /**
+     * Slots are created on first use of each variant, so a JVM that never
+     * touches the full variant never calibrates it
+     */
+    private static final class SimplifiedHolder {
+        static final Slot SLOT = select(SimplifiedAES128.Variant.SIMPLIFIED);
+    }
+
+    private static final class FullHolder {
+        static final Slot SLOT = select(SimplifiedAES128.Variant.FULL);
+    }
+
+    /**
+     * @return The slot ciphers of this variant read their engine from
+     */
+    static Slot forVariant(SimplifiedAES128.Variant variant) {
+        return variant == SimplifiedAES128.Variant.FULL ? FullHolder.SLOT : SimplifiedHolder.SLOT;
+    }
+
+    /**
+     * @return Every engine that could be loaded in this JVM
+     */
+    static List<BlockEngine> available() {
+        return AVAILABLE;
+    }
+
+    /**
+     * @return The engine with this name, or null if it is not available
+     */
+    static BlockEngine byName(String name) {
+        for (BlockEngine engine : AVAILABLE) {
+            if (engine.name().equals(name)) {
+                return engine;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return One line naming the engine in use for the variant, how it was
+     *         chosen and the calibration rates
+     */
+    static String report(SimplifiedAES128.Variant variant) {
+        return forVariant(variant).report;
+    }
+
+    /**
+     * Blocks until the variant's calibration, if any, has finished
+     */
+    static void awaitCalibration(SimplifiedAES128.Variant variant) throws InterruptedException {
+        forVariant(variant).calibrated.await();
+    }
+
+    /**
+     * The portable engines plus the Vector API engine when the running JVM
+     * resolved jdk.incubator.vector and the class was compiled
+     */
+    private static List<BlockEngine> discover() {
+        List<BlockEngine> engines = new ArrayList<>();
+        engines.add(ReferenceEngine.INSTANCE);
+        engines.add(TableEngine.INSTANCE);
+        engines.add(NibbleEngine.INSTANCE);
+        engines.add(BitslicedEngine.INSTANCE);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                Class<?> vector = Class.forName("VectorEngine", true, BlockEngines.class.getClassLoader());
+                engines.add((BlockEngine) vector.getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOG.log(System.Logger.Level.DEBUG, "Vector engine not available", e);
+            }
+        }
+        return Collections.unmodifiableList(engines);
+    }
+
+    private static Slot select(SimplifiedAES128.Variant variant) {
+        String requested = System.getProperty(ENGINE_PROPERTY);
+        if (requested != null) {
+            BlockEngine engine = byName(requested);
+            if (engine != null && engine.supports(variant)) {
+                Slot slot = new Slot(engine);
+                slot.report = report(variant, engine, ENGINE_PROPERTY + "=" + requested, Collections.emptyMap());
+                LOG.log(System.Logger.Level.INFO, slot.report);
+                return slot;
+            }
+            LOG.log(System.Logger.Level.WARNING, "{0}={1} is not available for {2}, calibrating instead",
+                    ENGINE_PROPERTY, requested, variant);
+        }
+
+        List<BlockEngine> candidates = new ArrayList<>();
+        for (BlockEngine engine : AVAILABLE) {
+            if (engine != ReferenceEngine.INSTANCE && engine.supports(variant)) {
+                candidates.add(engine);
+            }
+        }
+        if (candidates.size() < 2) {
+            Slot slot = new Slot(TableEngine.INSTANCE);
+            slot.report = report(variant, TableEngine.INSTANCE, "only candidate", Collections.emptyMap());
+            LOG.log(System.Logger.Level.INFO, slot.report);
+            return slot;
+        }
+
+        Slot slot = new Slot(TableEngine.INSTANCE, true);
+        slot.report = report(variant, TableEngine.INSTANCE, "calibrating", Collections.emptyMap());
+        long budgetNanos = Long.getLong(CALIBRATION_PROPERTY, DEFAULT_CALIBRATION_MILLIS) * 1_000_000L;
+        Thread calibration = new Thread(() -> calibrate(slot, variant, candidates, budgetNanos),
+                "aes-engine-calibration-" + variant.name().toLowerCase());
+        calibration.setDaemon(true);
+        calibration.setPriority(Thread.MIN_PRIORITY);
+        calibration.start();
+        return slot;
+    }
+
+    /**
+     * Times each candidate and switches the slot to the fastest over both
+     * directions
+     */
+    private static void calibrate(Slot slot, SimplifiedAES128.Variant variant,
+                                  List<BlockEngine> candidates, long budgetNanos) {
+        try {
+            Map<String, double[]> rates = new LinkedHashMap<>();
+            BlockEngine best = TableEngine.INSTANCE;
+            double bestCost = Double.MAX_VALUE;
+            for (BlockEngine engine : candidates) {
+                double[] rate = measure(engine, variant, budgetNanos);
+                rates.put(engine.name(), rate);
+                // Seconds to encrypt and then decrypt one megabyte
+                double cost = 1 / rate[0] + 1 / rate[1];
+                if (cost < bestCost) {
+                    best = engine;
+                    bestCost = cost;
+                }
+            }
+            slot.engine = best;
+            slot.report = report(variant, best, "calibrated", rates);
+            LOG.log(System.Logger.Level.INFO, slot.report);
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Block engine calibration failed, staying on table", e);
+        } finally {
+            slot.calibrated.countDown();
+        }
+    }
+
+    /**
+     * Warms the engine up by run count, since that is what triggers JIT
+     * compilation, then times repeated runs of the same buffer in each
+     * direction. All phases stop early at the budget.
+     * @return The best single timed encryption and decryption run in MB/s
+     */
+    private static double[] measure(BlockEngine engine, SimplifiedAES128.Variant variant, long budgetNanos) {
+        byte[] buf = new byte[CALIBRATION_BYTES];
+        for (int i = 0; i < buf.length; i++) {
+            buf[i] = (byte) (i * 31);
+        }
+        SimplifiedAES128 cipher = new SimplifiedAES128(new byte[16], variant, engine);
+        int blocks = buf.length / 16;
+
+        long deadline = System.nanoTime() + budgetNanos;
+        for (int i = 0; i < WARMUP_RUNS && System.nanoTime() < deadline; i++) {
+            cipher.encryptBlocks(buf, 0, buf, 0, blocks);
+            cipher.decryptBlocks(buf, 0, buf, 0, blocks);
+        }
+
+        double[] rates = new double[2];
+        for (int d = 0; d < 2; d++) {
+            boolean encrypt = d == 0;
+            long bestNanos = Long.MAX_VALUE;
+            long measureEnd = Math.min(deadline, System.nanoTime() + MEASURE_NANOS);
+            do {
+                long start = System.nanoTime();
+                if (encrypt) {
+                    cipher.encryptBlocks(buf, 0, buf, 0, blocks);
+                } else {
+                    cipher.decryptBlocks(buf, 0, buf, 0, blocks);
+                }
+                long end = System.nanoTime();
+                bestNanos = Math.min(bestNanos, end - start);
+            } while (System.nanoTime() < measureEnd);
+            rates[d] = buf.length * 1e3 / Math.max(1, bestNanos);
+        }
+        return rates;
+    }
+
+    private static String report(SimplifiedAES128.Variant variant, BlockEngine engine, String reason,
+                                 Map<String, double[]> rates) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Block engine for ").append(variant).append(": ").append(engine.name())
+          .append(" (").append(reason).append(')');
+        String sep = " - ";
+        for (Map.Entry<String, double[]> e : rates.entrySet()) {
+            sb.append(sep).append(e.getKey())
+              .append(String.format(" %.1f/%.1f MB/s", e.getValue()[0], e.getValue()[1]));
+            sep = ", ";
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The engine currently in use for one variant, or pinned for one cipher
+     */
+    static final class Slot {
+        volatile BlockEngine engine;
+        volatile String report;
+        final CountDownLatch calibrated;
+
+        Slot(BlockEngine engine) {
+            this(engine, false);
+        }
+
+        Slot(BlockEngine engine, boolean calibrating) {
+            this.engine = engine;
+            this.report = engine.name();
+            this.calibrated = new CountDownLatch(calibrating ? 1 : 0);
+        }
+    }
+}
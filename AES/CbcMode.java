@@ -0,0 +1,266 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cipher block chaining (CBC) mode over SimplifiedAES128, without padding.
+ *
+ * Encryption XORs each plaintext block with the previous ciphertext block
+ * (the IV for the first) before the block function, so it is a strict
+ * chain and runs one block at a time. Decryption only needs ciphertext
+ * blocks i and i-1 to recover plaintext block i: the block function runs
+ * over many blocks per engine call, and large inputs are split across a
+ * ForkJoinPool (the common pool unless one is given).
+ *
+ * {@link #encryptAll} encrypts many independent messages at once: block j
+ * of every message goes through one encryptBlocks call, so the engine
+ * overlaps chains that would otherwise each wait on the previous block.
+ *
+ * Only the full variant round-trips; the simplified inverse S-Box is lossy.
+ * Every call starts from the IV and instances hold no other state, so
+ * they are safe for concurrent use.
+ */
+public class CbcMode {
+    // Inputs at least this long are decrypted across the ForkJoinPool
+    private static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    // Bytes handled by one leaf task
+    private static final int TASK_CHUNK = 64 * 1024;
+
+    // Blocks decrypted per decryptBlocks call
+    private static final int DECRYPT_BLOCKS = 64;
+
+    // Messages encrypted side by side by encryptAll, one bitsliced batch
+    private static final int INTERLEAVE = 64;
+
+    private final SimplifiedAES128 cipher;
+    private final ForkJoinPool pool;
+    private final byte[] iv;
+
+    /**
+     * @param cipher The block cipher
+     * @param iv The 16-byte initialization vector
+     */
+    public CbcMode(SimplifiedAES128 cipher, byte[] iv) {
+        this(cipher, iv, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param cipher The block cipher
+     * @param iv The 16-byte initialization vector
+     * @param pool Pool for decrypting inputs of at least 256 KiB
+     */
+    public CbcMode(SimplifiedAES128 cipher, byte[] iv, ForkJoinPool pool) {
+        if (iv.length != 16) {
+            throw new IllegalArgumentException("IV must be 16 bytes, got " + iv.length);
+        }
+        this.cipher = cipher;
+        this.pool = pool;
+        this.iv = iv.clone();
+    }
+
+    /**
+     * Encrypts whole blocks. Input and output may be the same region.
+     * @param in Source array
+     * @param inOff Offset of the first byte in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the first byte in {@code out}
+     * @param len Number of bytes, a multiple of 16
+     */
+    public void encrypt(byte[] in, int inOff, byte[] out, int outOff, int len) {
+        checkLength(len);
+        byte[] chain = iv.clone();
+        for (int i = 0; i < len; i += 16) {
+            for (int j = 0; j < 16; j++) {
+                chain[j] ^= in[inOff + i + j];
+            }
+            cipher.encryptBlock(chain, 0, chain, 0);
+            System.arraycopy(chain, 0, out, outOff + i, 16);
+        }
+    }
+
+    /**
+     * Decrypts whole blocks. Input and output may be the same region.
+     * @param in Source array
+     * @param inOff Offset of the first byte in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the first byte in {@code out}
+     * @param len Number of bytes, a multiple of 16
+     */
+    public void decrypt(byte[] in, int inOff, byte[] out, int outOff, int len) {
+        checkLength(len);
+        if (len >= PARALLEL_THRESHOLD) {
+            pool.invoke(new DecryptTask(iv, in, inOff, out, outOff, len));
+        } else {
+            decrypt(iv, in, inOff, out, outOff, len, new byte[Math.min(len, DECRYPT_BLOCKS * 16)]);
+        }
+    }
+
+    /**
+     * Encrypts a whole array
+     * @param input Source bytes, a multiple of 16 long
+     * @return A new array with the ciphertext
+     */
+    public byte[] encrypt(byte[] input) {
+        byte[] output = new byte[input.length];
+        encrypt(input, 0, output, 0, input.length);
+        return output;
+    }
+
+    /**
+     * Decrypts a whole array
+     * @param input Ciphertext, a multiple of 16 long
+     * @return A new array with the plaintext
+     */
+    public byte[] decrypt(byte[] input) {
+        byte[] output = new byte[input.length];
+        decrypt(input, 0, output, 0, input.length);
+        return output;
+    }
+
+    /**
+     * Encrypts independent messages, each with its own IV, interleaving
+     * their blocks. Messages may differ in length.
+     * @param cipher The block cipher
+     * @param ivs One 16-byte IV per message
+     * @param messages Plaintexts, each a multiple of 16 long
+     * @return The ciphertexts, in message order
+     */
+    public static byte[][] encryptAll(SimplifiedAES128 cipher, byte[][] ivs, byte[][] messages) {
+        byte[][] out = new byte[messages.length][];
+        for (int i = 0; i < messages.length; i++) {
+            out[i] = new byte[messages[i].length];
+        }
+        encryptAll(cipher, ivs, messages, out);
+        return out;
+    }
+
+    /**
+     * Encrypts independent messages, each with its own IV, interleaving
+     * their blocks. Messages may differ in length, and out[i] may be the
+     * same array as in[i].
+     * @param cipher The block cipher
+     * @param ivs One 16-byte IV per message
+     * @param in Plaintexts, each a multiple of 16 long
+     * @param out Ciphertext arrays, each at least as long as its plaintext;
+     *            checked for every message before any block is written
+     */
+    public static void encryptAll(SimplifiedAES128 cipher, byte[][] ivs, byte[][] in, byte[][] out) {
+        if (ivs.length != in.length || out.length != in.length) {
+            throw new IllegalArgumentException("Expected one IV and one output per message, got "
+                    + ivs.length + " IVs, " + in.length + " inputs and " + out.length + " outputs");
+        }
+        for (int i = 0; i < in.length; i++) {
+            if (ivs[i].length != 16) {
+                throw new IllegalArgumentException("IV must be 16 bytes, got " + ivs[i].length);
+            }
+            checkLength(in[i].length);
+            if (out[i].length < in[i].length) {
+                throw new IllegalArgumentException("Output " + i + " must hold " + in[i].length
+                        + " bytes, got " + out[i].length);
+            }
+        }
+
+        byte[] lanes = new byte[INTERLEAVE * 16];
+        int[] active = new int[INTERLEAVE];
+        for (int first = 0; first < in.length; first += INTERLEAVE) {
+            int last = Math.min(in.length, first + INTERLEAVE);
+            for (int off = 0; ; off += 16) {
+                // Gather block off of every message that is that long,
+                // XORed with its chaining block
+                int n = 0;
+                for (int m = first; m < last; m++) {
+                    if (in[m].length > off) {
+                        byte[] chain = off == 0 ? ivs[m] : out[m];
+                        int c = off == 0 ? 0 : off - 16;
+                        int l = n * 16;
+                        for (int j = 0; j < 16; j++) {
+                            lanes[l + j] = (byte) (in[m][off + j] ^ chain[c + j]);
+                        }
+                        active[n++] = m;
+                    }
+                }
+                if (n == 0) {
+                    break;
+                }
+                cipher.encryptBlocks(lanes, 0, lanes, 0, n);
+                for (int k = 0; k < n; k++) {
+                    System.arraycopy(lanes, k * 16, out[active[k]], off, 16);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decrypts a range on the calling thread. Works from the last batch of
+     * blocks to the first, so when decrypting in place the ciphertext block
+     * before each batch is still intact when it is needed.
+     * @param prev The ciphertext block before the range, or the IV
+     */
+    private void decrypt(byte[] prev, byte[] in, int inOff, byte[] out, int outOff, int len, byte[] scratch) {
+        int blocks = len >>> 4;
+        int end = blocks;
+        while (end > 0) {
+            int start = Math.max(0, end - DECRYPT_BLOCKS);
+            cipher.decryptBlocks(in, inOff + start * 16, scratch, 0, end - start);
+            for (int b = end - 1; b >= start; b--) {
+                int s = (b - start) * 16;
+                int o = outOff + b * 16;
+                if (b == 0) {
+                    for (int j = 0; j < 16; j++) {
+                        out[o + j] = (byte) (scratch[s + j] ^ prev[j]);
+                    }
+                } else {
+                    int p = inOff + (b - 1) * 16;
+                    for (int j = 0; j < 16; j++) {
+                        out[o + j] = (byte) (scratch[s + j] ^ in[p + j]);
+                    }
+                }
+            }
+            end = start;
+        }
+    }
+
+    private static void checkLength(int len) {
+        if ((len & 15) != 0) {
+            throw new IllegalArgumentException("CBC length must be a multiple of 16, got " + len);
+        }
+    }
+
+    /**
+     * Splits a range in halves on block boundaries until it fits one chunk.
+     * The ciphertext block before the right half is copied before either
+     * half runs, since in-place decryption of the left half overwrites it.
+     */
+    private final class DecryptTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] prev;
+        private final byte[] in;
+        private final int inOff;
+        private final byte[] out;
+        private final int outOff;
+        private final int len;
+
+        DecryptTask(byte[] prev, byte[] in, int inOff, byte[] out, int outOff, int len) {
+            this.prev = prev;
+            this.in = in;
+            this.inOff = inOff;
+            this.out = out;
+            this.outOff = outOff;
+            this.len = len;
+        }
+
+        @Override
+        protected void compute() {
+            if (len <= TASK_CHUNK) {
+                decrypt(prev, in, inOff, out, outOff, len, new byte[DECRYPT_BLOCKS * 16]);
+                return;
+            }
+            int half = (len >>> 1) & ~15;
+            byte[] mid = new byte[16];
+            System.arraycopy(in, inOff + half - 16, mid, 0, 16);
+            invokeAll(new DecryptTask(prev, in, inOff, out, outOff, half),
+                      new DecryptTask(mid, in, inOff + half, out, outOff + half, len - half));
+        }
+    }
+}
@@ -0,0 +1,495 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Throughput, latency and allocation harness for SimplifiedAES128.
+ *
+ * Each case runs warmup iterations followed by timed measurement
+ * iterations on every requested thread count. Every thread gets its own
+ * buffers so the numbers reflect the cipher and not contention. The
+ * allocation column comes from the per-thread allocation counters of
+ * the HotSpot ThreadMXBean, which is what the JMH GC profiler reads too.
+ *
+ * All cases share one JVM, so JIT profiles from earlier cases can skew
+ * later ones. This is the zero-dependency quick runner; the JMH benchmarks
+ * in jmh/ (built by the Maven pom) fork per case and are the numbers to
+ * quote.
+ *
+ * Usage:
+ *   java CipherBenchmark [-t 1,2,4] [-w 3] [-i 5] [-ms 1000] [-s 1k,64k,1m,64m] [-p 1,2,4] [filter]
+ *
+ *   -t   comma-separated thread counts (default 1)
+ *   -w   warmup iterations per case (default 3)
+ *   -i   measurement iterations per case (default 5)
+ *   -ms  length of one iteration in milliseconds (default 1000)
+ *   -s   buffer sizes for the bulk cases (default 1k,64k,1m,64m)
+ *   -p   ForkJoinPool sizes for the parallel scaling table, which streams
+ *        the largest -s size through ParallelEncryptor once per pool size
+ *        and reports efficiency against the smallest pool (default: off)
+ *   filter  only run cases whose name contains this text
+ */
+public class CipherBenchmark {
+
+    /**
+     * One benchmarked operation, owned by a single thread
+     */
+    interface Task {
+        void run();
+    }
+
+    /**
+     * A named benchmark with a per-thread task factory
+     */
+    static final class Case {
+        final String name;
+        final long bytesPerOp; // 0 when throughput in MB/s makes no sense
+        final int batch;       // operations between clock reads
+        final Supplier<Task> factory;
+
+        Case(String name, long bytesPerOp, int batch, Supplier<Task> factory) {
+            this.name = name;
+            this.bytesPerOp = bytesPerOp;
+            this.batch = batch;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Totals of one timed iteration across all threads
+     */
+    static final class Sample {
+        long ops;
+        long nanos;
+        long allocatedBytes;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final byte[] KEY = "1234567890abcdef".getBytes();
+
+    // Keeps results reachable so the JIT cannot drop the work
+    static volatile Object sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = {1};
+        int warmup = 3;
+        int iterations = 5;
+        long iterationMillis = 1000;
+        int[] sizes = {1 << 10, 64 << 10, 1 << 20, 64 << 20};
+        int[] parallelisms = null;
+        String filter = "";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-t": threadCounts = parseList(args[++i]); break;
+                case "-w": warmup = Integer.parseInt(args[++i]); break;
+                case "-i": iterations = Integer.parseInt(args[++i]); break;
+                case "-ms": iterationMillis = Long.parseLong(args[++i]); break;
+                case "-s": sizes = parseList(args[++i]); break;
+                case "-p": parallelisms = parseList(args[++i]); break;
+                default: filter = args[i];
+            }
+        }
+
+        List<Case> cases = new ArrayList<>();
+        addCases(cases, sizes);
+
+        for (SimplifiedAES128.Variant variant : SimplifiedAES128.Variant.values()) {
+            BlockEngines.awaitCalibration(variant);
+            System.out.println(BlockEngines.report(variant));
+        }
+
+        System.out.printf("%-34s %7s %14s %12s %12s %10s %8s%n",
+                "case", "threads", "ops/s", "ns/op", "MB/s", "B/op", "gc");
+        for (Case c : cases) {
+            if (!c.name.contains(filter)) continue;
+            for (int threads : threadCounts) {
+                run(c, threads, warmup, iterations, iterationMillis);
+            }
+        }
+
+        if (parallelisms != null) {
+            scaling(parallelisms, sizes[sizes.length - 1], warmup, iterations, iterationMillis);
+        }
+    }
+
+    /**
+     * Streams one buffer through ParallelEncryptor on pools of each size and
+     * prints throughput and efficiency relative to the first pool size,
+     * where 100% means perfectly linear scaling
+     */
+    static void scaling(int[] parallelisms, int size, int warmup, int iterations, long iterationMillis)
+            throws InterruptedException {
+        SimplifiedAES128 aes = new SimplifiedAES128(KEY);
+        byte[] data = randomBytes(size);
+        double baseRate = 0;
+        int basePool = parallelisms[0];
+        List<String> summary = new ArrayList<>();
+        for (int p : parallelisms) {
+            ForkJoinPool pool = new ForkJoinPool(p);
+            try {
+                Case c = new Case("parallelEncrypt/p" + p + "/" + formatSize(size), size, 1, () -> {
+                    ParallelEncryptor encryptor = new ParallelEncryptor(aes, new byte[16], pool);
+                    ByteArrayInputStream in = new ByteArrayInputStream(data);
+                    OutputStream out = OutputStream.nullOutputStream();
+                    return () -> {
+                        in.reset();
+                        try {
+                            encryptor.process(in, out);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    };
+                });
+                double rate = run(c, 1, warmup, iterations, iterationMillis);
+                if (p == basePool) {
+                    baseRate = rate;
+                }
+                summary.add(String.format("%-34s %7d %12.1f %9.0f%%", c.name, p, rate,
+                        100 * rate * basePool / (baseRate * p)));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        System.out.printf("%n%-34s %7s %12s %10s%n", "scaling (" + Runtime.getRuntime().availableProcessors()
+                + " cpus)", "workers", "MB/s", "efficiency");
+        for (String line : summary) {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Registers the benchmark cases
+     */
+    static void addCases(List<Case> cases, int[] sizes) {
+        SimplifiedAES128 aes = new SimplifiedAES128(KEY);
+
+        cases.add(new Case("encryptBlock", 16, 4096, () -> {
+            byte[] block = randomBytes(16);
+            return () -> aes.encryptBlock(block, 0, block, 0);
+        }));
+        cases.add(new Case("decryptBlock", 16, 4096, () -> {
+            byte[] block = randomBytes(16);
+            return () -> aes.decryptBlock(block, 0, block, 0);
+        }));
+        cases.add(new Case("encrypt(byte[])", 16, 4096, () -> {
+            byte[][] block = {randomBytes(16)};
+            return () -> block[0] = aes.encrypt(block[0]);
+        }));
+        cases.add(new Case("keySetup", 0, 1024, () -> {
+            byte[] key = KEY.clone();
+            return () -> {
+                key[0]++;
+                sink = new SimplifiedAES128(key);
+            };
+        }));
+        cases.add(new Case("keySetup/inPlace", 0, 1024, () -> {
+            byte[] key = KEY.clone();
+            int[] w = new int[44];
+            sink = w;
+            return () -> {
+                key[0]++;
+                SimplifiedAES128.expandKey(key, 0, SimplifiedAES128.Variant.SIMPLIFIED, w);
+            };
+        }));
+        KeyScheduleCache cache = new KeyScheduleCache(4096);
+        cases.add(new Case("keySetup/cached", 0, 1024, () -> {
+            byte[][] keys = new byte[1024][];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = randomBytes(16);
+                keys[i][0] = (byte) i;
+                keys[i][1] = (byte) (i >> 8);
+            }
+            int[] next = new int[1];
+            return () -> sink = cache.get(keys[next[0]++ & 1023]);
+        }));
+
+        cases.add(new Case("drbg/nextLong", 8, 4096, () -> {
+            CtrDrbg drbg = new CtrDrbg(42);
+            long[] acc = new long[1]; // not sink, which would box every value
+            sink = acc;
+            return () -> acc[0] += drbg.nextLong();
+        }));
+
+        // Mixed-key batch: 4096 records over 16 tenant keys
+        int batchRecords = 4096;
+        byte[][] tenantKeys = randomRecords(16, 16);
+        byte[][] recordKeys = new byte[batchRecords][];
+        Random pick = new Random(1);
+        for (int i = 0; i < batchRecords; i++) {
+            recordKeys[i] = tenantKeys[pick.nextInt(tenantKeys.length)];
+        }
+        cases.add(new Case("multiKey/perRecord", (long) batchRecords * 16, 1, () -> {
+            byte[] buf = randomBytes(batchRecords * 16);
+            return () -> {
+                for (int i = 0; i < batchRecords; i++) {
+                    new SimplifiedAES128(recordKeys[i]).encryptBlock(buf, i * 16, buf, i * 16);
+                }
+            };
+        }));
+        MultiKeyEncryptor multiKey = new MultiKeyEncryptor(SimplifiedAES128.Variant.SIMPLIFIED);
+        cases.add(new Case("multiKey/grouped", (long) batchRecords * 16, 1, () -> {
+            byte[] buf = randomBytes(batchRecords * 16);
+            return () -> multiKey.encrypt(recordKeys, buf, 0, buf, 0);
+        }));
+
+        // Many small independently chained records, one after another and interleaved
+        int records = 1024;
+        int recordSize = 256;
+        cases.add(new Case("cbcEncrypt/records/sequential", (long) records * recordSize, 1, () -> {
+            byte[][] ivs = randomRecords(records, 16);
+            byte[][] msgs = randomRecords(records, recordSize);
+            CbcMode[] modes = new CbcMode[records];
+            for (int i = 0; i < records; i++) {
+                modes[i] = new CbcMode(aes, ivs[i]);
+            }
+            return () -> {
+                for (int i = 0; i < records; i++) {
+                    modes[i].encrypt(msgs[i], 0, msgs[i], 0, recordSize);
+                }
+            };
+        }));
+        cases.add(new Case("cbcEncrypt/records/interleaved", (long) records * recordSize, 1, () -> {
+            byte[][] ivs = randomRecords(records, 16);
+            byte[][] msgs = randomRecords(records, recordSize);
+            return () -> CbcMode.encryptAll(aes, ivs, msgs, msgs);
+        }));
+
+        for (int size : sizes) {
+            int blocks = size / 16;
+            cases.add(new Case("bulkEncrypt/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                byte[] buf = randomBytes(blocks * 16);
+                return () -> {
+                    for (int off = 0; off < buf.length; off += 16) {
+                        aes.encryptBlock(buf, off, buf, off);
+                    }
+                };
+            }));
+            for (BlockEngine engine : BlockEngines.available()) {
+                SimplifiedAES128 pinned = new SimplifiedAES128(KEY, SimplifiedAES128.Variant.SIMPLIFIED, engine);
+                cases.add(new Case("bulkEncrypt/" + engine.name() + "/" + formatSize(size), (long) blocks * 16,
+                        batchFor(size), () -> {
+                    byte[] buf = randomBytes(blocks * 16);
+                    return () -> pinned.encryptBlocks(buf, 0, buf, 0, blocks);
+                }));
+            }
+            cases.add(new Case("bulkDecrypt/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                byte[] buf = randomBytes(blocks * 16);
+                return () -> {
+                    for (int off = 0; off < buf.length; off += 16) {
+                        aes.decryptBlock(buf, off, buf, off);
+                    }
+                };
+            }));
+            CbcMode cbc = new CbcMode(new SimplifiedAES128(KEY, SimplifiedAES128.Variant.FULL), new byte[16]);
+            cases.add(new Case("cbcEncrypt/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                byte[] buf = randomBytes(blocks * 16);
+                return () -> cbc.encrypt(buf, 0, buf, 0, buf.length);
+            }));
+            cases.add(new Case("cbcDecrypt/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                byte[] buf = randomBytes(blocks * 16);
+                return () -> cbc.decrypt(buf, 0, buf, 0, buf.length);
+            }));
+            GcmMode gcm = new GcmMode(new SimplifiedAES128(KEY, SimplifiedAES128.Variant.FULL));
+            cases.add(new Case("gcmEncrypt/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                byte[] buf = randomBytes(blocks * 16);
+                byte[] iv = randomBytes(12);
+                return () -> sink = gcm.encrypt(iv, iv, buf);
+            }));
+            if (size >= 4096) {
+                XtsMode xts = new XtsMode(new SimplifiedAES128(KEY, SimplifiedAES128.Variant.FULL),
+                        new SimplifiedAES128(randomBytes(16), SimplifiedAES128.Variant.FULL), 4096);
+                cases.add(new Case("xtsEncrypt/4KiB-sectors/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                    byte[] buf = randomBytes(blocks * 16);
+                    return () -> xts.encryptSectors(0, buf, 0, buf, 0, buf.length / 4096);
+                }));
+            }
+            cases.add(new Case("drbg/nextBytes/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                CtrDrbg drbg = new CtrDrbg(42);
+                byte[] buf = new byte[blocks * 16];
+                return () -> drbg.nextBytes(buf);
+            }));
+            cases.add(new Case("daviesMeyer/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                DaviesMeyerHash hash = new DaviesMeyerHash();
+                byte[] buf = randomBytes(blocks * 16);
+                byte[] digest = new byte[DaviesMeyerHash.DIGEST_LENGTH];
+                sink = digest;
+                return () -> {
+                    hash.update(buf, 0, buf.length);
+                    hash.digest(digest, 0);
+                };
+            }));
+            cases.add(new Case("bulkEncrypt/heapBuffer/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                ByteBuffer buf = ByteBuffer.wrap(randomBytes(blocks * 16));
+                return () -> {
+                    buf.clear();
+                    aes.encrypt(buf.duplicate(), buf);
+                };
+            }));
+            cases.add(new Case("bulkEncrypt/directBuffer/" + formatSize(size), (long) blocks * 16, batchFor(size), () -> {
+                ByteBuffer buf = ByteBuffer.allocateDirect(blocks * 16).put(randomBytes(blocks * 16));
+                return () -> {
+                    buf.clear();
+                    aes.encrypt(buf.duplicate(), buf);
+                };
+            }));
+        }
+    }
+
+    /**
+     * Runs warmup and measurement iterations of one case and prints the mean
+     * @return Throughput in MB/s, or 0 for cases without a byte count
+     */
+    static double run(Case c, int threads, int warmup, int iterations, long iterationMillis)
+            throws InterruptedException {
+        Task[] tasks = new Task[threads];
+        for (int t = 0; t < threads; t++) {
+            tasks[t] = c.factory.get();
+        }
+
+        for (int i = 0; i < warmup; i++) {
+            iterate(c, tasks, iterationMillis);
+        }
+
+        long gcBefore = gcCount();
+        long ops = 0;
+        long nanos = 0;
+        long allocated = 0;
+        for (int i = 0; i < iterations; i++) {
+            Sample s = iterate(c, tasks, iterationMillis);
+            ops += s.ops;
+            nanos += s.nanos;
+            allocated += s.allocatedBytes;
+        }
+        long gcs = gcCount() - gcBefore;
+
+        // nanos is summed per iteration (wall time), ops across all threads
+        double opsPerSec = ops * 1e9 / nanos;
+        double nsPerOp = threads * 1e9 / opsPerSec;
+        String mbPerSec = c.bytesPerOp == 0 ? "-" : String.format("%.1f", opsPerSec * c.bytesPerOp / 1e6);
+        System.out.printf("%-34s %7d %14.0f %12.1f %12s %10.1f %8d%n",
+                c.name, threads, opsPerSec, nsPerOp, mbPerSec, (double) allocated / ops, gcs);
+        return opsPerSec * c.bytesPerOp / 1e6;
+    }
+
+    /**
+     * One timed iteration: all threads start together and stop at the deadline
+     */
+    static Sample iterate(Case c, Task[] tasks, long iterationMillis) throws InterruptedException {
+        int threads = tasks.length;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] ops = new long[threads];
+        long[] allocated = new long[threads];
+        long[] deadline = new long[1];
+
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                Task task = tasks[id];
+                long tid = Thread.currentThread().getId();
+                long allocBefore = THREADS.getThreadAllocatedBytes(tid);
+                long n = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    for (int b = 0; b < c.batch; b++) {
+                        task.run();
+                    }
+                    n += c.batch;
+                }
+                allocated[id] = THREADS.getThreadAllocatedBytes(tid) - allocBefore;
+                ops[id] = n;
+                done.countDown();
+            }, "bench-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        deadline[0] = begin + iterationMillis * 1_000_000L;
+        start.countDown();
+        done.await();
+        long end = System.nanoTime();
+
+        Sample s = new Sample();
+        s.nanos = end - begin;
+        for (int t = 0; t < threads; t++) {
+            s.ops += ops[t];
+            s.allocatedBytes += allocated[t];
+        }
+        return s;
+    }
+
+    /**
+     * Fewer operations between clock reads for the large buffers
+     */
+    static int batchFor(int size) {
+        return Math.max(1, (64 << 10) / size);
+    }
+
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    static byte[] randomBytes(int n) {
+        byte[] b = new byte[n];
+        new Random(n).nextBytes(b);
+        return b;
+    }
+
+    static byte[][] randomRecords(int count, int size) {
+        byte[][] records = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            records[i] = randomBytes(size);
+            records[i][0] = (byte) i;
+        }
+        return records;
+    }
+
+    static int[] parseList(String s) {
+        String[] parts = s.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = parseSize(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Parses "64", "64k" or "64m"
+     */
+    static int parseSize(String s) {
+        char unit = Character.toLowerCase(s.charAt(s.length() - 1));
+        if (unit == 'k') return Integer.parseInt(s.substring(0, s.length() - 1)) << 10;
+        if (unit == 'm') return Integer.parseInt(s.substring(0, s.length() - 1)) << 20;
+        return Integer.parseInt(s);
+    }
+
+    static String formatSize(int size) {
+        if (size >= 1 << 20 && size % (1 << 20) == 0) return (size >> 20) + "MiB";
+        if (size >= 1 << 10 && size % (1 << 10) == 0) return (size >> 10) + "KiB";
+        return size + "B";
+    }
+}
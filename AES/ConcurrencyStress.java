@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hammers one shared cipher per variant from many threads and checks every
+ * output against a cipher pinned to the reference engine.
+ *
+ * The shared ciphers follow the normal engine selection and the run starts
+ * without waiting for calibration, so traffic overlaps the engine switch.
+ * The caller's key array is overwritten right after construction and keeps
+ * being scribbled on while the threads run; a cipher that kept a reference
+ * to it would drift from the reference outputs.
+ *
+ * Expected outputs are computed up front, so the threads only touch the
+ * shared ciphers. Each call takes a random run of blocks from the corpus,
+ * sometimes in place, and compares the result byte for byte.
+ *
+ * Usage:
+ *   java ConcurrencyStress [-t 16] [-ms 3000] [-b 256]
+ *
+ *   -t   worker threads (default 16)
+ *   -ms  run time in milliseconds (default 3000)
+ *   -b   largest number of blocks per call (default 256)
+ *
+ * Exits with status 1 on any mismatch or worker failure.
+ */
+public class ConcurrencyStress {
+    // Blocks in the precomputed corpus
+    private static final int CORPUS_BLOCKS = 4096;
+
+    private static final byte[] KEY = "1234567890abcdef".getBytes();
+
+    /**
+     * A shared cipher and the reference outputs for the corpus
+     */
+    static final class Target {
+        final SimplifiedAES128 shared;
+        final byte[] plain;
+        final byte[] encrypted;
+        final byte[] decrypted;
+        final LongAdder calls = new LongAdder();
+        final LongAdder blocks = new LongAdder();
+        final LongAdder mismatches = new LongAdder();
+
+        Target(SimplifiedAES128 shared, SimplifiedAES128 reference, byte[] plain) {
+            this.shared = shared;
+            this.plain = plain;
+            this.encrypted = new byte[plain.length];
+            this.decrypted = new byte[plain.length];
+            reference.encryptBlocks(plain, 0, encrypted, 0, CORPUS_BLOCKS);
+            reference.decryptBlocks(plain, 0, decrypted, 0, CORPUS_BLOCKS);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = 16;
+        long runMillis = 3000;
+        int maxBlocks = 256;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-t": threads = Integer.parseInt(args[++i]); break;
+                case "-ms": runMillis = Long.parseLong(args[++i]); break;
+                case "-b": maxBlocks = Math.min(Integer.parseInt(args[++i]), CORPUS_BLOCKS); break;
+                default: throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        byte[] plain = new byte[CORPUS_BLOCKS * 16];
+        new Random(42).nextBytes(plain);
+
+        // The caller's key array, handed to the shared ciphers and then
+        // overwritten
+        byte[] key = KEY.clone();
+        SimplifiedAES128 simplified = new SimplifiedAES128(key, SimplifiedAES128.Variant.SIMPLIFIED);
+        SimplifiedAES128 full = new SimplifiedAES128(key, SimplifiedAES128.Variant.FULL);
+        Arrays.fill(key, (byte) 0);
+
+        Target[] targets = {
+            new Target(simplified, new SimplifiedAES128(KEY, SimplifiedAES128.Variant.SIMPLIFIED,
+                    ReferenceEngine.INSTANCE), plain),
+            new Target(full, new SimplifiedAES128(KEY, SimplifiedAES128.Variant.FULL,
+                    ReferenceEngine.INSTANCE), plain)
+        };
+
+        long deadline = System.nanoTime() + runMillis * 1_000_000L;
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder failures = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            int limit = maxBlocks;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    hammer(targets, new Random(seed), limit, deadline);
+                } catch (Throwable e) {
+                    failures.increment();
+                    e.printStackTrace();
+                }
+            }, "stress-" + t));
+        }
+        Thread scribbler = new Thread(() -> {
+            Random random = new Random();
+            while (System.nanoTime() < deadline) {
+                random.nextBytes(key);
+            }
+        }, "stress-key");
+        workers.add(scribbler);
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long mismatches = 0;
+        System.out.printf("%-12s %-10s %12s %14s %10s%n", "variant", "engine", "calls", "blocks", "mismatches");
+        for (Target target : targets) {
+            System.out.printf("%-12s %-10s %12d %14d %10d%n", target.shared.variant(), target.shared.engine(),
+                    target.calls.sum(), target.blocks.sum(), target.mismatches.sum());
+            mismatches += target.mismatches.sum();
+        }
+        for (SimplifiedAES128.Variant variant : SimplifiedAES128.Variant.values()) {
+            System.out.println(BlockEngines.report(variant));
+        }
+
+        if (mismatches != 0 || failures.sum() != 0) {
+            System.out.println("FAILED: " + mismatches + " mismatches, " + failures.sum() + " worker failures");
+            System.exit(1);
+        }
+        System.out.println("OK: " + threads + " threads, no mismatches");
+    }
+
+    /**
+     * Encrypts and decrypts random runs of the corpus on the shared ciphers
+     * until the deadline, counting outputs that differ from the reference
+     */
+    static void hammer(Target[] targets, Random random, int maxBlocks, long deadline) {
+        byte[] buffer = new byte[(maxBlocks + 1) * 16];
+        while (System.nanoTime() < deadline) {
+            Target target = targets[random.nextInt(targets.length)];
+            boolean encrypt = random.nextBoolean();
+            boolean inPlace = random.nextBoolean();
+            int blocks = 1 + random.nextInt(maxBlocks);
+            int from = random.nextInt(CORPUS_BLOCKS - blocks + 1) * 16;
+            int outOff = random.nextInt(16); // Unaligned destinations too
+            int len = blocks * 16;
+
+            byte[] in = target.plain;
+            int inOff = from;
+            if (inPlace) {
+                System.arraycopy(target.plain, from, buffer, outOff, len);
+                in = buffer;
+                inOff = outOff;
+            }
+            if (encrypt) {
+                target.shared.encryptBlocks(in, inOff, buffer, outOff, blocks);
+            } else {
+                target.shared.decryptBlocks(in, inOff, buffer, outOff, blocks);
+            }
+
+            byte[] expected = encrypt ? target.encrypted : target.decrypted;
+            if (Arrays.mismatch(buffer, outOff, outOff + len, expected, from, from + len) >= 0) {
+                target.mismatches.increment();
+            }
+            target.calls.increment();
+            target.blocks.add(blocks);
+        }
+    }
+}
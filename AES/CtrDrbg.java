@@ -0,0 +1,281 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.random.RandomGenerator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic random generator in the style of CTR_DRBG: the output is
+ * the encryption of a 128-bit counter, with the full AES variant so that
+ * every counter maps to a distinct block.
+ *
+ * Keystream is generated 64 counter blocks per engine call into a 1 KiB
+ * buffer, and bulk {@link #nextBytes(byte[])} writes whole blocks straight
+ * into the caller's array. The output is the same byte stream however it
+ * is drawn: {@link #nextInt()} and {@link #nextLong()} take the next 4 or
+ * 8 bytes big-endian, carrying over the end of the buffer when needed.
+ *
+ * Instances are not thread-safe and hold no locks. Give each thread its
+ * own: {@link #jump()} moves 2^64 blocks ahead in the counter space, so
+ * {@link #jumps(long)} and {@link #rngs(long)} hand out copies that share
+ * the key and never overlap, and are safe to consume as parallel streams.
+ * {@link #split()} instead seeds a new key from this generator's output.
+ * There is no reseeding or prediction resistance; this is a fast
+ * reproducible source, not a SecureRandom.
+ */
+public class CtrDrbg implements RandomGenerator.SplittableGenerator, RandomGenerator.JumpableGenerator {
+    // Counter blocks generated per refill
+    private static final int BUFFER_BLOCKS = 64;
+
+    // Reads 8 output bytes as one long
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // Reads 4 output bytes as one int
+    private static final VarHandle INT_BE =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final SimplifiedAES128 cipher;
+    private long counterHi;
+    private long counterLo;
+    private final byte[] buffer = new byte[BUFFER_BLOCKS * 16];
+    private int position = buffer.length;
+
+    /**
+     * @param seed 32 bytes: the 16-byte key followed by the initial counter
+     */
+    public CtrDrbg(byte[] seed) {
+        if (seed.length != 32) {
+            throw new IllegalArgumentException("Seed must be 32 bytes, got " + seed.length);
+        }
+        byte[] key = new byte[16];
+        System.arraycopy(seed, 0, key, 0, 16);
+        this.cipher = new SimplifiedAES128(key, SimplifiedAES128.Variant.FULL);
+        this.counterHi = (long) LONG_BE.get(seed, 16);
+        this.counterLo = (long) LONG_BE.get(seed, 24);
+    }
+
+    /**
+     * Expands a 64-bit seed into key and counter with SplitMix64
+     * @param seed Any value; equal seeds give equal streams
+     */
+    public CtrDrbg(long seed) {
+        this(expand(seed));
+    }
+
+    /**
+     * A copy of {@code other} jumped {@code jumps} times
+     */
+    private CtrDrbg(CtrDrbg other, long jumps) {
+        this.cipher = other.cipher;
+        this.counterHi = other.counterHi + jumps;
+        this.counterLo = other.counterLo;
+        if (jumps == 0) {
+            System.arraycopy(other.buffer, 0, buffer, 0, buffer.length);
+            this.position = other.position;
+        }
+    }
+
+    @Override
+    public long nextLong() {
+        if (position > buffer.length - 8) {
+            return straddle(8);
+        }
+        long v = (long) LONG_BE.get(buffer, position);
+        position += 8;
+        return v;
+    }
+
+    @Override
+    public int nextInt() {
+        if (position > buffer.length - 4) {
+            return (int) straddle(4);
+        }
+        int v = (int) INT_BE.get(buffer, position);
+        position += 4;
+        return v;
+    }
+
+    /**
+     * Fills the array with the next output bytes. Whole blocks beyond the
+     * buffered ones are encrypted in place in {@code bytes}.
+     */
+    @Override
+    public void nextBytes(byte[] bytes) {
+        int off = 0;
+        int len = bytes.length;
+
+        int buffered = Math.min(len, buffer.length - position);
+        System.arraycopy(buffer, position, bytes, 0, buffered);
+        position += buffered;
+        off += buffered;
+        len -= buffered;
+
+        int blocks = len >>> 4;
+        if (blocks > 0) {
+            for (int i = 0; i < blocks; i++) {
+                nextCounter(bytes, off + i * 16);
+            }
+            cipher.encryptBlocks(bytes, off, bytes, off, blocks);
+            off += blocks * 16;
+            len -= blocks * 16;
+        }
+
+        if (len > 0) {
+            refill();
+            System.arraycopy(buffer, 0, bytes, off, len);
+            position = len;
+        }
+    }
+
+    /**
+     * @return A generator with a key drawn from this one's output
+     */
+    @Override
+    public CtrDrbg split() {
+        return split(this);
+    }
+
+    /**
+     * @param source Generator supplying the new key and counter
+     * @return A generator with a key drawn from {@code source}
+     */
+    @Override
+    public CtrDrbg split(RandomGenerator.SplittableGenerator source) {
+        byte[] seed = new byte[32];
+        source.nextBytes(seed);
+        return new CtrDrbg(seed);
+    }
+
+    @Override
+    public Stream<RandomGenerator.SplittableGenerator> splits() {
+        return splits(this);
+    }
+
+    @Override
+    public Stream<RandomGenerator.SplittableGenerator> splits(long streamSize) {
+        return splits(streamSize, this);
+    }
+
+    @Override
+    public Stream<RandomGenerator.SplittableGenerator> splits(RandomGenerator.SplittableGenerator source) {
+        return Stream.<RandomGenerator.SplittableGenerator>generate(() -> split(source)).sequential();
+    }
+
+    @Override
+    public Stream<RandomGenerator.SplittableGenerator> splits(long streamSize,
+                                                              RandomGenerator.SplittableGenerator source) {
+        if (streamSize < 0) {
+            throw new IllegalArgumentException("Negative stream size " + streamSize);
+        }
+        return splits(source).limit(streamSize);
+    }
+
+    /**
+     * @return An independent copy at the same position
+     */
+    @Override
+    public CtrDrbg copy() {
+        return new CtrDrbg(this, 0);
+    }
+
+    /**
+     * Moves the counter 2^64 blocks ahead and drops buffered output
+     */
+    @Override
+    public void jump() {
+        counterHi++;
+        position = buffer.length;
+    }
+
+    /**
+     * @return 2^64, in counter blocks
+     */
+    @Override
+    public double jumpDistance() {
+        return 0x1p64;
+    }
+
+    /**
+     * Copies of this generator jumped 0, 1, ... streamSize - 1 times; this
+     * generator then jumps streamSize times. Element i is built from a
+     * snapshot and i alone, so the stream can run in parallel and always
+     * yields the same generators.
+     */
+    @Override
+    public Stream<RandomGenerator> jumps(long streamSize) {
+        if (streamSize < 0) {
+            throw new IllegalArgumentException("Negative stream size " + streamSize);
+        }
+        CtrDrbg snapshot = copy();
+        counterHi += streamSize;
+        position = buffer.length;
+        return LongStream.range(0, streamSize).mapToObj(i -> new CtrDrbg(snapshot, i));
+    }
+
+    /**
+     * Jumped copies: same key, disjoint counter ranges, no key expansion
+     */
+    @Override
+    public Stream<RandomGenerator> rngs() {
+        return jumps();
+    }
+
+    /**
+     * Jumped copies as from {@link #jumps(long)}
+     */
+    @Override
+    public Stream<RandomGenerator> rngs(long streamSize) {
+        return jumps(streamSize);
+    }
+
+    /**
+     * Reads the next {@code bytes} bytes big-endian when they run past the
+     * end of the buffer, so the leftover bytes are not skipped
+     */
+    private long straddle(int bytes) {
+        long v = 0;
+        for (int i = 0; i < bytes; i++) {
+            if (position == buffer.length) {
+                refill();
+            }
+            v = (v << 8) | (buffer[position++] & 0xFF);
+        }
+        return v;
+    }
+
+    /**
+     * Encrypts the next BUFFER_BLOCKS counters into the buffer
+     */
+    private void refill() {
+        for (int i = 0; i < BUFFER_BLOCKS; i++) {
+            nextCounter(buffer, i * 16);
+        }
+        cipher.encryptBlocks(buffer, 0, buffer, 0, BUFFER_BLOCKS);
+        position = 0;
+    }
+
+    /**
+     * Writes the counter as a big-endian block and increments it
+     */
+    private void nextCounter(byte[] out, int off) {
+        LONG_BE.set(out, off, counterHi);
+        LONG_BE.set(out, off + 8, counterLo);
+        if (++counterLo == 0) {
+            counterHi++;
+        }
+    }
+
+    private static byte[] expand(long seed) {
+        byte[] out = new byte[32];
+        for (int i = 0; i < 32; i += 8) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            LONG_BE.set(out, i, z ^ (z >>> 31));
+        }
+        return out;
+    }
+}
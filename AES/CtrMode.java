@@ -0,0 +1,234 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counter (CTR) mode over SimplifiedAES128.
+ *
+ * The keystream is the encryption of successive counter blocks, starting
+ * from the 16-byte initial counter and incrementing it as a 128-bit
+ * big-endian number. Only the forward block function is used, so data
+ * round-trips even though the simplified inverse S-Box is lossy, and
+ * encryption and decryption are the same operation.
+ *
+ * Keystream blocks are independent of each other: large inputs are split
+ * across a ForkJoinPool (the common pool unless one is given), and
+ * {@link #seek(long)} jumps to any byte offset without generating the
+ * keystream before it.
+ *
+ * An instance tracks a stream position and is not safe for concurrent use;
+ * the cipher it wraps can be shared.
+ */
+public class CtrMode {
+    // Inputs at least this long are split across the ForkJoinPool
+    private static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    // Bytes handled by one leaf task
+    private static final int TASK_CHUNK = 64 * 1024;
+
+    // Counter blocks encrypted per encryptBlocks call
+    private static final int KEYSTREAM_BLOCKS = 64;
+
+    private final SimplifiedAES128 cipher;
+    private final ForkJoinPool pool;
+    private final long counterHi;
+    private final long counterLo;
+    private long position;
+
+    /**
+     * Creates a CTR stream positioned at offset 0
+     * @param cipher The block cipher producing the keystream
+     * @param iv The 16-byte initial counter block
+     */
+    public CtrMode(SimplifiedAES128 cipher, byte[] iv) {
+        this(cipher, iv, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a CTR stream positioned at offset 0 that splits large inputs
+     * across the given pool
+     * @param cipher The block cipher producing the keystream
+     * @param iv The 16-byte initial counter block
+     * @param pool Pool for inputs of at least 256 KiB
+     */
+    public CtrMode(SimplifiedAES128 cipher, byte[] iv, ForkJoinPool pool) {
+        if (iv.length != 16) {
+            throw new IllegalArgumentException("IV must be 16 bytes, got " + iv.length);
+        }
+        this.cipher = cipher;
+        this.pool = pool;
+        this.counterHi = getLong(iv, 0);
+        this.counterLo = getLong(iv, 8);
+    }
+
+    /**
+     * Moves the stream to an absolute byte offset
+     * @param offset Byte offset into the keystream
+     */
+    public void seek(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset " + offset);
+        }
+        position = offset;
+    }
+
+    /**
+     * @return The current byte offset into the keystream
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Encrypts or decrypts a byte range at the current position, then
+     * advances the position. Input and output may be the same region.
+     * @param in Source array
+     * @param inOff Offset of the first byte in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the first byte in {@code out}
+     * @param len Number of bytes to process
+     */
+    public void process(byte[] in, int inOff, byte[] out, int outOff, int len) {
+        if (len >= PARALLEL_THRESHOLD) {
+            pool.invoke(new KeystreamTask(position, in, inOff, out, outOff, len));
+        } else {
+            xorKeystream(position, in, inOff, out, outOff, len, new byte[KEYSTREAM_BLOCKS * 16]);
+        }
+        position += len;
+    }
+
+    /**
+     * Encrypts or decrypts a whole array at the current position
+     * @param input Source bytes
+     * @return A new array with the transformed bytes
+     */
+    public byte[] process(byte[] input) {
+        byte[] output = new byte[input.length];
+        process(input, 0, output, 0, input.length);
+        return output;
+    }
+
+    /**
+     * XORs the keystream starting at {@code offset} into a byte range,
+     * on the calling thread
+     */
+    private void xorKeystream(long offset, byte[] in, int inOff, byte[] out, int outOff,
+                              int len, byte[] keystream) {
+        long block = offset >>> 4;
+        int skip = (int) (offset & 15);
+        while (len > 0) {
+            int blocks = Math.min(KEYSTREAM_BLOCKS, (skip + len + 15) >>> 4);
+            for (int i = 0; i < blocks; i++) {
+                counterBlock(block + i, keystream, i * 16);
+            }
+            cipher.encryptBlocks(keystream, 0, keystream, 0, blocks);
+
+            int n = Math.min(blocks * 16 - skip, len);
+            for (int i = 0; i < n; i++) {
+                out[outOff + i] = (byte) (in[inOff + i] ^ keystream[skip + i]);
+            }
+            block += blocks;
+            skip = 0;
+            inOff += n;
+            outOff += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * XORs the keystream starting at {@code offset} into a buffer range,
+     * on the calling thread. Reads and writes at absolute indices, so
+     * neither buffer position nor the stream position moves, and disjoint
+     * ranges may be processed concurrently. src and dst may be the same
+     * buffer at the same index.
+     */
+    void xorKeystream(long offset, ByteBuffer src, int srcIndex, ByteBuffer dst, int dstIndex, int len) {
+        byte[] keystream = new byte[KEYSTREAM_BLOCKS * 16];
+        ByteBuffer ks = ByteBuffer.wrap(keystream).order(src.order());
+        long block = offset >>> 4;
+        int skip = (int) (offset & 15);
+        while (len > 0) {
+            int blocks = Math.min(KEYSTREAM_BLOCKS, (skip + len + 15) >>> 4);
+            for (int i = 0; i < blocks; i++) {
+                counterBlock(block + i, keystream, i * 16);
+            }
+            cipher.encryptBlocks(keystream, 0, keystream, 0, blocks);
+
+            int n = Math.min(blocks * 16 - skip, len);
+            int i = 0;
+            if (src.order() == dst.order()) {
+                for (; i + 8 <= n; i += 8) {
+                    dst.putLong(dstIndex + i, src.getLong(srcIndex + i) ^ ks.getLong(skip + i));
+                }
+            }
+            for (; i < n; i++) {
+                dst.put(dstIndex + i, (byte) (src.get(srcIndex + i) ^ keystream[skip + i]));
+            }
+            block += blocks;
+            skip = 0;
+            srcIndex += n;
+            dstIndex += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes initial counter + index as a 128-bit big-endian block
+     */
+    private void counterBlock(long index, byte[] out, int off) {
+        long lo = counterLo + index;
+        long hi = counterHi + (Long.compareUnsigned(lo, counterLo) < 0 ? 1 : 0);
+        putLong(hi, out, off);
+        putLong(lo, out, off + 8);
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (b[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    private static void putLong(long v, byte[] b, int off) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    /**
+     * Splits a range in halves on block boundaries until it fits one chunk
+     */
+    private final class KeystreamTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long offset;
+        private final byte[] in;
+        private final int inOff;
+        private final byte[] out;
+        private final int outOff;
+        private final int len;
+
+        KeystreamTask(long offset, byte[] in, int inOff, byte[] out, int outOff, int len) {
+            this.offset = offset;
+            this.in = in;
+            this.inOff = inOff;
+            this.out = out;
+            this.outOff = outOff;
+            this.len = len;
+        }
+
+        @Override
+        protected void compute() {
+            if (len <= TASK_CHUNK) {
+                xorKeystream(offset, in, inOff, out, outOff, len, new byte[KEYSTREAM_BLOCKS * 16]);
+                return;
+            }
+            // Split so the right half starts on a block boundary
+            int half = (int) (((offset + len / 2) & ~15L) - offset);
+            invokeAll(new KeystreamTask(offset, in, inOff, out, outOff, half),
+                      new KeystreamTask(offset + half, in, inOff + half, out, outOff + half, len - half));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.Arrays;
+
+/**
+ * Davies-Meyer hash over SimplifiedAES128: each 16-byte message block is
+ * used as the key to encrypt the running 128-bit state, and the result is
+ * XORed back into the state, H(i) = E[m(i)](H(i-1)) XOR H(i-1). The
+ * message is padded Merkle-Damgard style with 0x80, zeros and its bit
+ * length, and the digest is the final state.
+ *
+ * Every block is a new key, so the cost is as much key expansion as
+ * encryption. The schedule is expanded in place into one array per
+ * instance and the rounds run straight on the table engine, so hashing
+ * allocates nothing; the calibrated engines need per-key preparation that
+ * would never pay off for a single block.
+ *
+ * A 128-bit digest gives at most 64-bit collision resistance, and the
+ * simplified variant's lossy S-Box weakens it further: use this as a fast
+ * checksum, not a cryptographic hash. Instances are not thread-safe.
+ */
+public class DaviesMeyerHash {
+    // Digest size in bytes, one cipher block
+    public static final int DIGEST_LENGTH = 16;
+
+    // Initial state: fractional parts of the square roots of the first
+    // four primes, as in SHA-256
+    private static final byte[] IV = {
+        (byte) 0x6a, (byte) 0x09, (byte) 0xe6, (byte) 0x67, (byte) 0xbb, (byte) 0x67, (byte) 0xae, (byte) 0x85,
+        (byte) 0x3c, (byte) 0x6e, (byte) 0xf3, (byte) 0x72, (byte) 0xa5, (byte) 0x4f, (byte) 0xf5, (byte) 0x3a
+    };
+
+    private final boolean full;
+    private final SimplifiedAES128.Variant variant;
+    private final int[] w = new int[44];         // Rekeyed in place for every message block
+    private final byte[] state = IV.clone();
+    private final byte[] encrypted = new byte[16];
+    private final byte[] buffer = new byte[16]; // Pending message bytes
+    private int buffered;
+    private long length;
+
+    /**
+     * Creates a hash over the full AES variant
+     */
+    public DaviesMeyerHash() {
+        this(SimplifiedAES128.Variant.FULL);
+    }
+
+    /**
+     * @param variant S-Box variant of the underlying cipher
+     */
+    public DaviesMeyerHash(SimplifiedAES128.Variant variant) {
+        this.variant = variant;
+        this.full = variant == SimplifiedAES128.Variant.FULL;
+    }
+
+    /**
+     * Hashes a whole array with the full variant
+     * @param data Message bytes
+     * @return The 16-byte digest
+     */
+    public static byte[] hash(byte[] data) {
+        DaviesMeyerHash h = new DaviesMeyerHash();
+        h.update(data, 0, data.length);
+        return h.digest();
+    }
+
+    /**
+     * Absorbs one byte
+     */
+    public void update(byte b) {
+        buffer[buffered++] = b;
+        length++;
+        if (buffered == 16) {
+            compress(buffer, 0);
+            buffered = 0;
+        }
+    }
+
+    /**
+     * Absorbs a byte range; whole blocks are compressed straight from
+     * {@code in} without copying
+     * @param in Source array
+     * @param off Offset of the first byte
+     * @param len Number of bytes
+     */
+    public void update(byte[] in, int off, int len) {
+        length += len;
+        if (buffered > 0) {
+            int n = Math.min(len, 16 - buffered);
+            System.arraycopy(in, off, buffer, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+            if (buffered < 16) {
+                return;
+            }
+            compress(buffer, 0);
+            buffered = 0;
+        }
+        for (; len >= 16; off += 16, len -= 16) {
+            compress(in, off);
+        }
+        System.arraycopy(in, off, buffer, 0, len);
+        buffered = len;
+    }
+
+    /**
+     * Pads, finishes the hash into {@code out} and resets for a new message
+     * @param out Destination array
+     * @param off Offset for the 16 digest bytes
+     */
+    public void digest(byte[] out, int off) {
+        long bits = length << 3;
+        buffer[buffered++] = (byte) 0x80;
+        if (buffered > 8) {
+            Arrays.fill(buffer, buffered, 16, (byte) 0);
+            compress(buffer, 0);
+            buffered = 0;
+        }
+        Arrays.fill(buffer, buffered, 8, (byte) 0);
+        for (int i = 15; i >= 8; i--) {
+            buffer[i] = (byte) bits;
+            bits >>>= 8;
+        }
+        compress(buffer, 0);
+        System.arraycopy(state, 0, out, off, 16);
+        reset();
+    }
+
+    /**
+     * Pads and finishes the hash, then resets for a new message
+     * @return The 16-byte digest
+     */
+    public byte[] digest() {
+        byte[] out = new byte[DIGEST_LENGTH];
+        digest(out, 0);
+        return out;
+    }
+
+    /**
+     * Discards absorbed input and starts over
+     */
+    public void reset() {
+        System.arraycopy(IV, 0, state, 0, 16);
+        buffered = 0;
+        length = 0;
+    }
+
+    /**
+     * One Davies-Meyer step with the block at {@code off} as the key
+     */
+    private void compress(byte[] block, int off) {
+        SimplifiedAES128.expandKey(block, off, variant, w);
+        if (full) {
+            TableEngine.encryptBlockFull(w, state, 0, encrypted, 0);
+        } else {
+            TableEngine.encryptBlock(w, state, 0, encrypted, 0);
+        }
+        for (int i = 0; i < 16; i++) {
+            state[i] ^= encrypted[i];
+        }
+    }
+}
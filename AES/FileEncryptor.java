@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * CTR encryption of whole files through memory-mapped windows.
+ *
+ * The source and target are mapped window by window and the keystream is
+ * XORed straight from one mapping into the other, so file data is never
+ * copied onto the heap. Offsets are longs throughout and no window is
+ * larger than {@link #MAX_WINDOW}, so files well beyond the 2 GiB limit of
+ * a single ByteBuffer work. Windows are independent CTR ranges and are
+ * processed in parallel on the common ForkJoinPool.
+ *
+ * Encryption and decryption are the same operation. A file can be
+ * transformed in place by passing the same path as source and target.
+ *
+ * Each window's mapping is forced once its keystream is applied, and the
+ * target channel is forced with its metadata before {@link #process}
+ * returns. A normal return therefore means the whole result is on the
+ * storage device, as far as {@link MappedByteBuffer#force()} and
+ * {@link FileChannel#force(boolean)} guarantee that for a local file.
+ * After an exception the target may be partly transformed.
+ */
+public class FileEncryptor {
+    // Largest mapping at once; well under the 2 GiB ByteBuffer limit
+    static final long MAX_WINDOW = 64L << 20;
+
+    // Smallest window worth a task of its own
+    private static final long MIN_WINDOW = 1L << 20;
+
+    private final SimplifiedAES128 cipher;
+    private final byte[] iv;
+
+    /**
+     * @param cipher The block cipher producing the keystream
+     * @param iv The 16-byte initial counter block
+     */
+    public FileEncryptor(SimplifiedAES128 cipher, byte[] iv) {
+        if (iv.length != 16) {
+            throw new IllegalArgumentException("IV must be 16 bytes, got " + iv.length);
+        }
+        this.cipher = cipher;
+        this.iv = iv.clone();
+    }
+
+    /**
+     * Encrypts or decrypts {@code source} into {@code target}, replacing
+     * the target's contents. The keystream starts at offset 0. Returns
+     * once the result has been forced to the storage device.
+     * @param source File to read
+     * @param target File to write; may be the same file as source
+     * @return Number of bytes processed
+     */
+    public long process(Path source, Path target) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                run(channel, channel, size);
+                channel.force(true);
+                return size;
+            }
+        }
+
+        try (FileChannel src = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = src.size();
+            if (size > 0) {
+                // Size the target up front so windows can be mapped in any order
+                dst.write(ByteBuffer.allocate(1), size - 1);
+            }
+            run(src, dst, size);
+            dst.force(true);
+            return size;
+        }
+    }
+
+    /**
+     * Splits the file into windows and runs them on the common pool
+     */
+    private void run(FileChannel src, FileChannel dst, long size) throws IOException {
+        long window = windowSize(size, ForkJoinPool.commonPool().getParallelism());
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (long offset = 0; offset < size; offset += window) {
+            long start = offset;
+            int len = (int) Math.min(window, size - offset);
+            tasks.add(ForkJoinTask.adapt(() -> processWindow(src, dst, start, len)));
+        }
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Maps one window of both files, XORs the keystream across and forces
+     * the written window out, so its dirty pages do not wait for the
+     * mapping to be garbage collected
+     */
+    private void processWindow(FileChannel src, FileChannel dst, long offset, int len) {
+        try {
+            MappedByteBuffer out = dst.map(FileChannel.MapMode.READ_WRITE, offset, len);
+            MappedByteBuffer in = src == dst ? out : src.map(FileChannel.MapMode.READ_ONLY, offset, len);
+            // Each window gets its own CtrMode, which only reads the IV
+            new CtrMode(cipher, iv).xorKeystream(offset, in, 0, out, 0, len);
+            out.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * About four windows per worker for balance, within [1 MiB, 64 MiB]
+     * and page aligned
+     */
+    static long windowSize(long size, int parallelism) {
+        long window = size / (4L * Math.max(1, parallelism));
+        window = Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, window));
+        return window & ~4095L;
+    }
+}
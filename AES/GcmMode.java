@@ -0,0 +1,408 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.crypto.AEADBadTagException;
+
+/**
+ * Galois/Counter Mode (GCM) over SimplifiedAES128: CTR encryption plus a
+ * GHASH authentication tag over the additional data and the ciphertext.
+ * With the full variant the output is byte-for-byte AES-GCM.
+ *
+ * GHASH multiplies by the hash key H with Shoup's 4-bit method: a per-key
+ * table of H times every nibble value, so each 16-byte block costs 32
+ * table lookups and shifts instead of a 128-step bitwise multiply. The
+ * payload is processed one chunk at a time, keystream, XOR and GHASH
+ * together, while the chunk is still in cache.
+ *
+ * Large payloads are split into 64 KiB segments on a ForkJoinPool (the
+ * common pool unless one is given). Each segment hashes its blocks from
+ * zero, and since GHASH is linear the segment hashes are combined in
+ * order by multiplying the running hash by H to the power of each
+ * segment's block count.
+ *
+ * Instances hold only per-key tables and are safe for concurrent use.
+ * Never reuse an IV with the same key.
+ */
+public class GcmMode {
+    // Payloads at least this long are split across the ForkJoinPool
+    private static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    // Bytes per parallel segment, a multiple of 16
+    private static final int SEGMENT = 64 * 1024;
+
+    // Counter blocks encrypted per encryptBlocks call
+    private static final int CHUNK_BLOCKS = 64;
+
+    // Length of the authentication tag in bytes
+    static final int TAG_LENGTH = 16;
+
+    // GF(2^128) reduction constant, x^128 = x^7 + x^2 + x + 1 in GCM's
+    // reflected bit order
+    private static final long R = 0xE100000000000000L;
+
+    // Reduction of the nibble shifted out of the low end, already in the
+    // top 16 bits of the high half
+    private static final long[] LAST4 = {
+        0x0000L << 48, 0x1c20L << 48, 0x3840L << 48, 0x2460L << 48,
+        0x7080L << 48, 0x6ca0L << 48, 0x48c0L << 48, 0x54e0L << 48,
+        0xe100L << 48, 0xfd20L << 48, 0xd940L << 48, 0xc560L << 48,
+        0x9180L << 48, 0x8da0L << 48, 0xa9c0L << 48, 0xb5e0L << 48
+    };
+
+    // Big-endian long view of byte arrays for GHASH input and the XOR
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final SimplifiedAES128 cipher;
+    private final ForkJoinPool pool;
+
+    // H times each 4-bit value, high and low 64 bits
+    private final long[] hh = new long[16];
+    private final long[] hl = new long[16];
+
+    // H^(blocks per segment), for combining segment hashes
+    private final long[] segmentPower;
+
+    /**
+     * @param cipher The block cipher
+     */
+    public GcmMode(SimplifiedAES128 cipher) {
+        this(cipher, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param cipher The block cipher
+     * @param pool Pool for payloads of at least 256 KiB
+     */
+    public GcmMode(SimplifiedAES128 cipher, ForkJoinPool pool) {
+        this.cipher = cipher;
+        this.pool = pool;
+
+        byte[] h = new byte[16];
+        cipher.encryptBlock(h, 0, h, 0);
+        long vh = getLong(h, 0);
+        long vl = getLong(h, 8);
+
+        // Entry 8 is H itself (the nibble's top bit is the lowest power),
+        // 4, 2 and 1 are H times x, x^2 and x^3, the rest are XOR sums
+        hh[8] = vh;
+        hl[8] = vl;
+        for (int i = 4; i > 0; i >>>= 1) {
+            long carry = (vl & 1) != 0 ? R : 0;
+            vl = (vh << 63) | (vl >>> 1);
+            vh = (vh >>> 1) ^ carry;
+            hh[i] = vh;
+            hl[i] = vl;
+        }
+        for (int i = 2; i <= 8; i <<= 1) {
+            for (int j = 1; j < i; j++) {
+                hh[i + j] = hh[i] ^ hh[j];
+                hl[i + j] = hl[i] ^ hl[j];
+            }
+        }
+
+        segmentPower = power(hh[8], hl[8], SEGMENT / 16);
+    }
+
+    /**
+     * Encrypts and authenticates a message
+     * @param iv Nonce, ideally 12 bytes; never reused with the same key
+     * @param aad Additional data that is authenticated but not encrypted
+     * @param plaintext Bytes to encrypt
+     * @return The ciphertext followed by the 16-byte tag
+     */
+    public byte[] encrypt(byte[] iv, byte[] aad, byte[] plaintext) {
+        byte[] j0 = initialCounter(iv);
+        byte[] out = new byte[plaintext.length + TAG_LENGTH];
+        long[] y = crypt(j0, aad, plaintext, plaintext.length, out, true);
+        tag(j0, aad.length, plaintext.length, y, out, plaintext.length);
+        return out;
+    }
+
+    /**
+     * Verifies and decrypts a message produced by
+     * {@link #encrypt(byte[], byte[], byte[])}
+     * @param iv The nonce used to encrypt
+     * @param aad The additional data used to encrypt
+     * @param ciphertext The ciphertext followed by the 16-byte tag
+     * @return The plaintext
+     * @throws AEADBadTagException If the tag does not match
+     */
+    public byte[] decrypt(byte[] iv, byte[] aad, byte[] ciphertext) throws AEADBadTagException {
+        if (ciphertext.length < TAG_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext shorter than the tag: " + ciphertext.length);
+        }
+        int len = ciphertext.length - TAG_LENGTH;
+        byte[] j0 = initialCounter(iv);
+        byte[] out = new byte[len];
+        long[] y = crypt(j0, aad, ciphertext, len, out, false);
+
+        byte[] expected = new byte[TAG_LENGTH];
+        tag(j0, aad.length, len, y, expected, 0);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(ciphertext, len, ciphertext.length))) {
+            Arrays.fill(out, (byte) 0);
+            throw new AEADBadTagException("GCM tag mismatch");
+        }
+        return out;
+    }
+
+    /**
+     * Hashes the additional data, then encrypts or decrypts the payload and
+     * hashes its ciphertext
+     * @return GHASH state after the payload, before the length block
+     */
+    private long[] crypt(byte[] j0, byte[] aad, byte[] in, int len, byte[] out, boolean encrypting) {
+        long[] y = new long[2];
+        ghash(y, aad, 0, aad.length);
+        if (len < PARALLEL_THRESHOLD) {
+            segment(j0, in, out, 0, len, y, encrypting);
+            return y;
+        }
+
+        int segments = (len + SEGMENT - 1) / SEGMENT;
+        long[][] partial = new long[segments][];
+        pool.invoke(new SegmentTask(j0, in, out, len, encrypting, partial, 0, segments));
+        for (int s = 0; s < segments; s++) {
+            int blocks = (Math.min(SEGMENT, len - s * SEGMENT) + 15) >>> 4;
+            long[] p = blocks == SEGMENT / 16 ? segmentPower : power(hh[8], hl[8], blocks);
+            multiply(y, p[0], p[1]);
+            y[0] ^= partial[s][0];
+            y[1] ^= partial[s][1];
+        }
+        return y;
+    }
+
+    /**
+     * Runs CTR and GHASH over one byte range in a single pass
+     * @param off Offset of the range in the payload, a multiple of 16
+     * @param y GHASH state to continue from and update
+     */
+    private void segment(byte[] j0, byte[] in, byte[] out, int off, int len, long[] y, boolean encrypting) {
+        byte[] counters = new byte[CHUNK_BLOCKS * 16];
+        byte[] keystream = new byte[CHUNK_BLOCKS * 16];
+        for (int i = 0; i < CHUNK_BLOCKS; i++) {
+            System.arraycopy(j0, 0, counters, i * 16, 12);
+        }
+        int base = getInt(j0, 12);
+        int block = off >>> 4;
+        int end = off + len;
+
+        while (off < end) {
+            int n = Math.min(CHUNK_BLOCKS * 16, end - off);
+            int blocks = (n + 15) >>> 4;
+            for (int i = 0; i < blocks; i++) {
+                // inc32: the payload starts at J0 + 1 and only the low word counts
+                putInt(base + block + i + 1, counters, i * 16 + 12);
+            }
+            cipher.encryptBlocks(counters, 0, keystream, 0, blocks);
+
+            if (!encrypting) {
+                ghash(y, in, off, n);
+            }
+            int i = 0;
+            for (; i + 8 <= n; i += 8) {
+                LONG_BE.set(out, off + i, (long) LONG_BE.get(in, off + i) ^ (long) LONG_BE.get(keystream, i));
+            }
+            for (; i < n; i++) {
+                out[off + i] = (byte) (in[off + i] ^ keystream[i]);
+            }
+            if (encrypting) {
+                ghash(y, out, off, n);
+            }
+            block += blocks;
+            off += n;
+        }
+    }
+
+    /**
+     * J0 from the IV: IV || 0^31 || 1 for 12-byte IVs, otherwise the GHASH
+     * of the zero-padded IV and its bit length
+     */
+    private byte[] initialCounter(byte[] iv) {
+        if (iv.length == 0) {
+            throw new IllegalArgumentException("IV must not be empty");
+        }
+        byte[] j0 = new byte[16];
+        if (iv.length == 12) {
+            System.arraycopy(iv, 0, j0, 0, 12);
+            j0[15] = 1;
+            return j0;
+        }
+        long[] y = new long[2];
+        ghash(y, iv, 0, iv.length);
+        y[1] ^= (long) iv.length << 3;
+        multiplyH(y);
+        putLong(y[0], j0, 0);
+        putLong(y[1], j0, 8);
+        return j0;
+    }
+
+    /**
+     * Folds in the length block and writes E(J0) XOR GHASH
+     */
+    private void tag(byte[] j0, int aadLen, int len, long[] y, byte[] out, int outOff) {
+        y[0] ^= (long) aadLen << 3;
+        y[1] ^= (long) len << 3;
+        multiplyH(y);
+        byte[] s = new byte[16];
+        cipher.encryptBlock(j0, 0, s, 0);
+        putLong(getLong(s, 0) ^ y[0], out, outOff);
+        putLong(getLong(s, 8) ^ y[1], out, outOff + 8);
+    }
+
+    /**
+     * Absorbs a byte range into the GHASH state, zero-padding a final
+     * partial block
+     */
+    private void ghash(long[] y, byte[] data, int off, int len) {
+        int end = off + len;
+        for (; off + 16 <= end; off += 16) {
+            y[0] ^= (long) LONG_BE.get(data, off);
+            y[1] ^= (long) LONG_BE.get(data, off + 8);
+            multiplyH(y);
+        }
+        if (off < end) {
+            byte[] last = new byte[16];
+            System.arraycopy(data, off, last, 0, end - off);
+            y[0] ^= getLong(last, 0);
+            y[1] ^= getLong(last, 8);
+            multiplyH(y);
+        }
+    }
+
+    /**
+     * y = y * H using the 4-bit tables, from the last byte to the first
+     */
+    private void multiplyH(long[] y) {
+        long[] hh = this.hh;
+        long[] hl = this.hl;
+        long x = y[1];
+        int lo = (int) x & 0xF;
+        long zh = hh[lo];
+        long zl = hl[lo];
+        for (int i = 0; i < 16; i++) {
+            if (i == 8) {
+                x = y[0];
+            }
+            if (i != 0) {
+                lo = (int) x & 0xF;
+                int rem = (int) zl & 0xF;
+                zl = (zh << 60) | (zl >>> 4);
+                zh = (zh >>> 4) ^ LAST4[rem] ^ hh[lo];
+                zl ^= hl[lo];
+            }
+            int hi = (int) (x >>> 4) & 0xF;
+            int rem = (int) zl & 0xF;
+            zl = (zh << 60) | (zl >>> 4);
+            zh = (zh >>> 4) ^ LAST4[rem] ^ hh[hi];
+            zl ^= hl[hi];
+            x >>>= 8;
+        }
+        y[0] = zh;
+        y[1] = zl;
+    }
+
+    /**
+     * y = y * (bh || bl), bit by bit; only used to combine segments
+     */
+    private static void multiply(long[] y, long bh, long bl) {
+        long zh = 0;
+        long zl = 0;
+        long vh = bh;
+        long vl = bl;
+        for (int i = 0; i < 128; i++) {
+            long bit = i < 64 ? y[0] >>> (63 - i) : y[1] >>> (127 - i);
+            if ((bit & 1) != 0) {
+                zh ^= vh;
+                zl ^= vl;
+            }
+            long carry = (vl & 1) != 0 ? R : 0;
+            vl = (vh << 63) | (vl >>> 1);
+            vh = (vh >>> 1) ^ carry;
+        }
+        y[0] = zh;
+        y[1] = zl;
+    }
+
+    /**
+     * @return (xh || xl)^n by square-and-multiply
+     */
+    private static long[] power(long xh, long xl, int n) {
+        long[] result = {Long.MIN_VALUE, 0}; // 1 in GCM bit order
+        long[] base = {xh, xl};
+        for (; n > 0; n >>>= 1) {
+            if ((n & 1) != 0) {
+                multiply(result, base[0], base[1]);
+            }
+            multiply(base, base[0], base[1]);
+        }
+        return result;
+    }
+
+    private static int getInt(byte[] b, int off) {
+        return (b[off] << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    private static void putInt(int v, byte[] b, int off) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    private static long getLong(byte[] b, int off) {
+        return ((long) getInt(b, off) << 32) | (getInt(b, off + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void putLong(long v, byte[] b, int off) {
+        putInt((int) (v >>> 32), b, off);
+        putInt((int) v, b, off + 4);
+    }
+
+    /**
+     * Splits a range of segments in halves; each leaf hashes one segment
+     * from zero into its slot of {@code partial}
+     */
+    private final class SegmentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] j0;
+        private final byte[] in;
+        private final byte[] out;
+        private final int len;
+        private final boolean encrypting;
+        private final long[][] partial;
+        private final int from;
+        private final int to;
+
+        SegmentTask(byte[] j0, byte[] in, byte[] out, int len, boolean encrypting,
+                    long[][] partial, int from, int to) {
+            this.j0 = j0;
+            this.in = in;
+            this.out = out;
+            this.len = len;
+            this.encrypting = encrypting;
+            this.partial = partial;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int off = from * SEGMENT;
+                long[] y = new long[2];
+                segment(j0, in, out, off, Math.min(SEGMENT, len - off), y, encrypting);
+                partial[from] = y;
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SegmentTask(j0, in, out, len, encrypting, partial, from, mid),
+                      new SegmentTask(j0, in, out, len, encrypting, partial, mid, to));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of expanded ciphers keyed by key bytes.
+ *
+ * A cipher instance only holds its expanded key schedule, so handing out
+ * one shared instance per key lets repeated keys skip keyExpansion
+ * entirely. Entries are spread over independently locked segments, each
+ * evicting its least recently used entry when full. A hit allocates
+ * nothing: the lookup goes through a reusable probe guarded by the
+ * segment lock, and only a miss copies the key.
+ */
+public class KeyScheduleCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding at most about {@code maximumSize} schedules
+     * @param maximumSize Capacity, split evenly over the segments
+     */
+    public KeyScheduleCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive, got " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        int perSegment = (maximumSize + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Returns the shared simplified cipher for a key, expanding it on a miss
+     * @param key The 16-byte encryption key; not retained
+     * @return A cipher shared by all callers with the same key
+     */
+    public SimplifiedAES128 get(byte[] key) {
+        return get(key, SimplifiedAES128.Variant.SIMPLIFIED);
+    }
+
+    /**
+     * Returns the shared cipher for a key and variant, expanding it on a miss
+     * @param key The 16-byte encryption key; not retained
+     * @param variant S-Box variant of the cipher
+     * @return A cipher shared by all callers with the same key and variant
+     */
+    public SimplifiedAES128 get(byte[] key, SimplifiedAES128.Variant variant) {
+        int hash = Arrays.hashCode(key) * 31 + variant.ordinal();
+        Segment segment = segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            segment.probe.set(key, variant, hash);
+            SimplifiedAES128 cipher = segment.map.get(segment.probe);
+            segment.probe.set(null, null, 0);
+            if (cipher != null) {
+                hits.increment();
+                return cipher;
+            }
+
+            misses.increment();
+            cipher = new SimplifiedAES128(key, variant);
+            segment.map.put(new CacheKey(key.clone(), variant, hash), cipher);
+            return cipher;
+        }
+    }
+
+    /**
+     * @return Lookups answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Lookups that had to expand a key schedule
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Entries dropped to stay within the size bound
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Fraction of lookups that hit, or 0 before the first lookup
+     */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * @return Number of cached schedules
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Drops all cached schedules; the counters are kept
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KeyScheduleCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.3f]",
+                size(), maximumSize, hitCount(), missCount(), evictionCount(), hitRate());
+    }
+
+    /**
+     * One LRU map and the reusable lookup key for it, guarded by its monitor
+     */
+    private final class Segment {
+        final CacheKey probe = new CacheKey(null, null, 0);
+        final LinkedHashMap<CacheKey, SimplifiedAES128> map;
+
+        Segment(int capacity) {
+            this.map = new LinkedHashMap<CacheKey, SimplifiedAES128>(capacity * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, SimplifiedAES128> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Key bytes plus variant, compared by content. Stored keys own a private
+     * copy of the bytes; the per-segment probe is re-pointed on every lookup.
+     */
+    private static final class CacheKey {
+        private byte[] key;
+        private SimplifiedAES128.Variant variant;
+        private int hash;
+
+        CacheKey(byte[] key, SimplifiedAES128.Variant variant, int hash) {
+            set(key, variant, hash);
+        }
+
+        void set(byte[] key, SimplifiedAES128.Variant variant, int hash) {
+            this.key = key;
+            this.variant = variant;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return hash == other.hash && variant == other.variant && Arrays.equals(key, other.key);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keystream pre-generation for CTR and OFB sessions.
+ *
+ * Each session owns a ring of future keystream bytes. Background threads
+ * keep the ring filled, so a request thread usually only XORs its data
+ * with bytes that are already there. The ring has one producer (the
+ * background thread currently refilling it) and one consumer (the thread
+ * using the session), and they share nothing but two volatile positions,
+ * so neither side ever takes a lock.
+ *
+ * When a consumer leaves fewer than the low watermark of blocks in the
+ * ring, the session is queued for refill, and a background thread fills it
+ * back up to the high watermark. The handoff is lock-free as well: the
+ * session goes on a non-blocking queue and an idle refill thread, if there
+ * is one, is unparked. A request that finds the ring empty stalls until
+ * the refill catches up: it spins briefly, then parks until the refill
+ * thread unparks it. Hit rate and stall count are kept per session and
+ * for the whole pool.
+ *
+ * Sessions are not safe for concurrent use; give each thread its own.
+ */
+public class KeystreamPool implements AutoCloseable {
+    // Blocks generated per encryptBlocks call while refilling CTR sessions
+    private static final int FILL_BLOCKS = 64;
+
+    // Busy checks of an empty ring before the consumer parks
+    private static final int SPINS = 100;
+
+    // Longest park of a waiting consumer, so it notices close() even
+    // without an unpark
+    private static final long PARK_NANOS = 1_000_000L;
+
+    private final int depth;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final ConcurrentLinkedQueue<Session> refills = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Thread> idle = new ConcurrentLinkedQueue<>(); // Parked refill threads
+    private final Thread[] workers;
+    private volatile boolean closed;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder blocksGenerated = new LongAdder();
+
+    /**
+     * Refills sessions up to their full depth
+     * @param threads Background threads that refill sessions
+     * @param depth Keystream blocks buffered per session, a power of two
+     * @param lowWatermark Buffered blocks below which a session is refilled
+     */
+    public KeystreamPool(int threads, int depth, int lowWatermark) {
+        this(threads, depth, lowWatermark, depth);
+    }
+
+    /**
+     * @param threads Background threads that refill sessions
+     * @param depth Ring size per session in blocks, a power of two
+     * @param lowWatermark Buffered blocks below which a session is refilled
+     * @param highWatermark Buffered blocks a refill stops at, at most depth
+     */
+    public KeystreamPool(int threads, int depth, int lowWatermark, int highWatermark) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one refill thread, got " + threads);
+        }
+        if (depth < 1 || Integer.bitCount(depth) != 1) {
+            throw new IllegalArgumentException("Depth must be a power of two, got " + depth);
+        }
+        if (highWatermark < 1 || highWatermark > depth) {
+            throw new IllegalArgumentException("High watermark must be in [1, " + depth + "], got " + highWatermark);
+        }
+        if (lowWatermark < 0 || lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("Low watermark must be in [0, " + highWatermark + "], got "
+                    + lowWatermark);
+        }
+        this.depth = depth;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::refillLoop, "aes-keystream-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Opens a CTR session: the keystream is the encryption of iv, iv + 1,
+     * ..., the same as {@link CtrMode} from offset 0
+     * @param cipher The block cipher producing the keystream
+     * @param iv The 16-byte initial counter block
+     */
+    public Session ctr(SimplifiedAES128 cipher, byte[] iv) {
+        return open(new Session(cipher, iv, false));
+    }
+
+    /**
+     * Opens an OFB session: each keystream block is the encryption of the
+     * previous one, starting from the IV
+     * @param cipher The block cipher producing the keystream
+     * @param iv The 16-byte initialization vector
+     */
+    public Session ofb(SimplifiedAES128 cipher, byte[] iv) {
+        return open(new Session(cipher, iv, true));
+    }
+
+    /**
+     * @return Process calls across all sessions
+     */
+    public long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return Process calls that found a session's ring empty and waited
+     */
+    public long stalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * @return Fraction of process calls served without waiting
+     */
+    public double hitRate() {
+        long r = requests.sum();
+        return r == 0 ? 1.0 : 1.0 - (double) stalls.sum() / r;
+    }
+
+    /**
+     * @return Keystream blocks generated by the refill threads
+     */
+    public long blocksGenerated() {
+        return blocksGenerated.sum();
+    }
+
+    /**
+     * Stops the refill threads. Sessions keep their buffered keystream but
+     * fail once it runs out.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private Session open(Session session) {
+        if (closed) {
+            throw new IllegalStateException("Keystream pool is closed");
+        }
+        session.requestRefill();
+        return session;
+    }
+
+    private void refillLoop() {
+        Thread self = Thread.currentThread();
+        while (!closed) {
+            Session session = refills.poll();
+            if (session == null) {
+                // Announce before the last look at the queue: a session
+                // queued after that look finds this thread in idle
+                idle.offer(self);
+                if (refills.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                idle.remove(self);
+                continue;
+            }
+            session.fill();
+            session.queued.set(false);
+            // The consumer may have drained below the watermark while the
+            // flag was still set
+            if (session.buffered() < lowWatermark * 16L) {
+                session.requestRefill();
+            }
+        }
+    }
+
+    /**
+     * One keystream: a CTR counter range or an OFB chain, with its ring
+     */
+    public final class Session implements AutoCloseable {
+        private final SimplifiedAES128 cipher;
+        private final boolean ofb;
+        private final byte[] ring;
+        private final int mask;
+
+        // Bytes consumed and bytes produced; only the consumer writes head
+        // and only the refilling thread writes tail
+        private volatile long head;
+        private volatile long tail;
+
+        // Producer state: next counter, or the last OFB output block
+        private long counterHi;
+        private long counterLo;
+        private final byte[] feedback = new byte[16];
+
+        // Set while the session is queued or being refilled
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        // Consumer parked on an empty ring, unparked when tail moves
+        private volatile Thread waiter;
+        private volatile boolean open = true;
+
+        // Consumer-side metrics
+        private long sessionRequests;
+        private long sessionStalls;
+
+        private Session(SimplifiedAES128 cipher, byte[] iv, boolean ofb) {
+            if (iv.length != 16) {
+                throw new IllegalArgumentException("IV must be 16 bytes, got " + iv.length);
+            }
+            this.cipher = cipher;
+            this.ofb = ofb;
+            this.ring = new byte[depth * 16];
+            this.mask = ring.length - 1;
+            System.arraycopy(iv, 0, feedback, 0, 16);
+            for (int i = 0; i < 8; i++) {
+                counterHi = (counterHi << 8) | (iv[i] & 0xFF);
+                counterLo = (counterLo << 8) | (iv[8 + i] & 0xFF);
+            }
+        }
+
+        /**
+         * XORs the next keystream bytes into a byte range. Input and output
+         * may be the same region.
+         * @param in Source array
+         * @param inOff Offset of the first byte in {@code in}
+         * @param out Destination array
+         * @param outOff Offset of the first byte in {@code out}
+         * @param len Number of bytes to process
+         */
+        public void process(byte[] in, int inOff, byte[] out, int outOff, int len) {
+            sessionRequests++;
+            requests.increment();
+            boolean stalled = false;
+            long h = head;
+            while (len > 0) {
+                long available = tail - h;
+                if (available == 0) {
+                    if (!stalled) {
+                        stalled = true;
+                        sessionStalls++;
+                        stalls.increment();
+                    }
+                    awaitKeystream(h);
+                    continue;
+                }
+                int n = (int) Math.min(available, len);
+                // Stop at the end of the ring; the next pass wraps
+                int pos = (int) h & mask;
+                n = Math.min(n, ring.length - pos);
+                for (int i = 0; i < n; i++) {
+                    out[outOff + i] = (byte) (in[inOff + i] ^ ring[pos + i]);
+                }
+                h += n;
+                head = h;
+                inOff += n;
+                outOff += n;
+                len -= n;
+            }
+            if (tail - h < lowWatermark * 16L) {
+                requestRefill();
+            }
+        }
+
+        /**
+         * Encrypts or decrypts a whole array with the next keystream bytes
+         * @param input Source bytes
+         * @return A new array with the transformed bytes
+         */
+        public byte[] process(byte[] input) {
+            byte[] output = new byte[input.length];
+            process(input, 0, output, 0, input.length);
+            return output;
+        }
+
+        /**
+         * @return Keystream bytes consumed so far
+         */
+        public long position() {
+            return head;
+        }
+
+        /**
+         * @return Process calls on this session
+         */
+        public long requests() {
+            return sessionRequests;
+        }
+
+        /**
+         * @return Process calls on this session that waited for keystream
+         */
+        public long stalls() {
+            return sessionStalls;
+        }
+
+        /**
+         * @return Fraction of this session's process calls served without waiting
+         */
+        public double hitRate() {
+            return sessionRequests == 0 ? 1.0 : 1.0 - (double) sessionStalls / sessionRequests;
+        }
+
+        /**
+         * Stops refilling this session
+         */
+        @Override
+        public void close() {
+            open = false;
+            Thread w = waiter;
+            if (w != null) {
+                LockSupport.unpark(w);
+            }
+        }
+
+        long buffered() {
+            return tail - head;
+        }
+
+        private void requestRefill() {
+            if (open && !closed && queued.compareAndSet(false, true)) {
+                refills.offer(this);
+                Thread worker = idle.poll();
+                if (worker != null) {
+                    LockSupport.unpark(worker);
+                }
+            }
+        }
+
+        /**
+         * Waits until keystream past {@code h} exists: a few busy checks,
+         * then parking until the refill thread publishes more. The waiter
+         * is published before tail is checked again and the refill thread
+         * reads it after moving tail, so a wakeup cannot be missed.
+         */
+        private void awaitKeystream(long h) {
+            requestRefill();
+            for (int spins = 0; tail == h; spins++) {
+                if (closed || !open) {
+                    throw new IllegalStateException("Keystream session is closed and its buffer is empty");
+                }
+                if (spins < SPINS) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                waiter = Thread.currentThread();
+                if (tail == h && open && !closed) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                waiter = null;
+            }
+        }
+
+        /**
+         * Generates whole blocks until the ring holds the high watermark.
+         * Runs on one refill thread at a time, guarded by the queued flag.
+         */
+        private void fill() {
+            long t = tail;
+            while (open && !closed) {
+                long free = highWatermark * 16L - (t - head);
+                int blocks = (int) Math.min(free >>> 4, FILL_BLOCKS);
+                if (blocks == 0) {
+                    break;
+                }
+                // tail only moves in whole blocks and the ring is a whole
+                // number of blocks, so a run never straddles the end
+                int pos = (int) t & mask;
+                blocks = Math.min(blocks, (ring.length - pos) >>> 4);
+                if (ofb) {
+                    for (int i = 0; i < blocks; i++) {
+                        cipher.encryptBlock(feedback, 0, feedback, 0);
+                        System.arraycopy(feedback, 0, ring, pos + i * 16, 16);
+                    }
+                } else {
+                    for (int i = 0; i < blocks; i++) {
+                        putLong(counterHi, ring, pos + i * 16);
+                        putLong(counterLo, ring, pos + i * 16 + 8);
+                        counterLo++;
+                        if (counterLo == 0) {
+                            counterHi++;
+                        }
+                    }
+                    cipher.encryptBlocks(ring, pos, ring, pos, blocks);
+                }
+                t += blocks * 16L;
+                tail = t;
+                blocksGenerated.add(blocks);
+                Thread w = waiter;
+                if (w != null) {
+                    LockSupport.unpark(w);
+                }
+            }
+        }
+    }
+
+    private static void putLong(long v, byte[] b, int off) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+}
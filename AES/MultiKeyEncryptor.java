@@ -0,0 +1,183 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Batch ECB encryption of records that each carry their own key.
+ *
+ * Record i is the 16-byte block at offset 16 * i together with keys[i].
+ * A batch is grouped by key: every distinct key is expanded once, its
+ * records are gathered into one contiguous run and encrypted with a single
+ * multi-block engine call, and the results are scattered back to the
+ * records' original positions. A batch of thousands of records over a
+ * handful of tenant keys costs a handful of key expansions.
+ *
+ * Grouping uses an open-addressing table and a counting sort on primitive
+ * arrays, so a batch allocates a few arrays but nothing per record. With a
+ * {@link KeyScheduleCache} the schedules are also reused across batches.
+ *
+ * Instances hold no per-batch state and are safe for concurrent use.
+ */
+public class MultiKeyEncryptor {
+    // Reads a key as two longs for hashing and comparison
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final SimplifiedAES128.Variant variant;
+    private final KeyScheduleCache cache;
+
+    /**
+     * Expands every distinct key of a batch afresh
+     * @param variant S-Box variant of the ciphers
+     */
+    public MultiKeyEncryptor(SimplifiedAES128.Variant variant) {
+        this(variant, null);
+    }
+
+    /**
+     * Looks up the ciphers of a batch in a cache shared across batches
+     * @param variant S-Box variant of the ciphers
+     * @param cache Cache of expanded schedules, or null for none
+     */
+    public MultiKeyEncryptor(SimplifiedAES128.Variant variant, KeyScheduleCache cache) {
+        this.variant = variant;
+        this.cache = cache;
+    }
+
+    /**
+     * Encrypts each record's block with its own key. Input and output may
+     * be the same region.
+     * @param keys One 16-byte key per record
+     * @param in Source array holding keys.length blocks
+     * @param inOff Offset of the first block in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the first block in {@code out}
+     * @return Number of distinct keys, i.e. key expansions or cache lookups
+     */
+    public int encrypt(byte[][] keys, byte[] in, int inOff, byte[] out, int outOff) {
+        return process(keys, in, inOff, out, outOff, true);
+    }
+
+    /**
+     * Decrypts each record's block with its own key. Input and output may
+     * be the same region.
+     * @param keys One 16-byte key per record
+     * @param in Source array holding keys.length blocks
+     * @param inOff Offset of the first block in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the first block in {@code out}
+     * @return Number of distinct keys, i.e. key expansions or cache lookups
+     */
+    public int decrypt(byte[][] keys, byte[] in, int inOff, byte[] out, int outOff) {
+        return process(keys, in, inOff, out, outOff, false);
+    }
+
+    /**
+     * Encrypts each record's block with its own key
+     * @param keys One 16-byte key per record
+     * @param blocks keys.length blocks, record i at offset 16 * i
+     * @return A new array with the encrypted blocks in record order
+     */
+    public byte[] encrypt(byte[][] keys, byte[] blocks) {
+        checkLength(keys, blocks);
+        byte[] out = new byte[blocks.length];
+        encrypt(keys, blocks, 0, out, 0);
+        return out;
+    }
+
+    /**
+     * Decrypts each record's block with its own key
+     * @param keys One 16-byte key per record
+     * @param blocks keys.length blocks, record i at offset 16 * i
+     * @return A new array with the decrypted blocks in record order
+     */
+    public byte[] decrypt(byte[][] keys, byte[] blocks) {
+        checkLength(keys, blocks);
+        byte[] out = new byte[blocks.length];
+        decrypt(keys, blocks, 0, out, 0);
+        return out;
+    }
+
+    private int process(byte[][] keys, byte[] in, int inOff, byte[] out, int outOff, boolean encrypt) {
+        int n = keys.length;
+        if (n == 0) {
+            return 0;
+        }
+
+        // Assign each record the group of its key; firstRecord[g] is the
+        // record whose key stands for group g
+        int[] group = new int[n];
+        int[] firstRecord = new int[n];
+        int groups = 0;
+        int slots = Integer.highestOneBit(n) << 2; // load factor at most 1/2
+        int[] table = new int[slots]; // group + 1, 0 for empty
+        int mask = slots - 1;
+        for (int r = 0; r < n; r++) {
+            byte[] key = keys[r];
+            if (key.length != 16) {
+                throw new IllegalArgumentException("Key " + r + " must be 16 bytes, got " + key.length);
+            }
+            long hi = (long) LONG_BE.get(key, 0);
+            long lo = (long) LONG_BE.get(key, 8);
+            long h = (hi * 0x9E3779B97F4A7C15L) ^ lo;
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (true) {
+                int g = table[slot] - 1;
+                if (g < 0) {
+                    table[slot] = groups + 1;
+                    firstRecord[groups] = r;
+                    group[r] = groups++;
+                    break;
+                }
+                byte[] other = keys[firstRecord[g]];
+                if ((long) LONG_BE.get(other, 0) == hi && (long) LONG_BE.get(other, 8) == lo) {
+                    group[r] = g;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        // Counting sort of the records by group, keeping record order within
+        // a group; start[g] is where group g's run begins
+        int[] start = new int[groups + 1];
+        for (int r = 0; r < n; r++) {
+            start[group[r] + 1]++;
+        }
+        for (int g = 0; g < groups; g++) {
+            start[g + 1] += start[g];
+        }
+        int[] order = new int[n];
+        int[] fill = start.clone();
+        byte[] run = new byte[n * 16];
+        for (int r = 0; r < n; r++) {
+            int pos = fill[group[r]]++;
+            order[pos] = r;
+            System.arraycopy(in, inOff + r * 16, run, pos * 16, 16);
+        }
+
+        // One cipher and one multi-block call per distinct key
+        for (int g = 0; g < groups; g++) {
+            byte[] key = keys[firstRecord[g]];
+            SimplifiedAES128 cipher = cache != null ? cache.get(key, variant) : new SimplifiedAES128(key, variant);
+            int count = start[g + 1] - start[g];
+            if (encrypt) {
+                cipher.encryptBlocks(run, start[g] * 16, run, start[g] * 16, count);
+            } else {
+                cipher.decryptBlocks(run, start[g] * 16, run, start[g] * 16, count);
+            }
+        }
+
+        for (int pos = 0; pos < n; pos++) {
+            System.arraycopy(run, pos * 16, out, outOff + order[pos] * 16, 16);
+        }
+        return groups;
+    }
+
+    private static void checkLength(byte[][] keys, byte[] blocks) {
+        if (blocks.length != keys.length * 16) {
+            throw new IllegalArgumentException("Expected " + keys.length + " blocks of 16 bytes, got "
+                    + blocks.length + " bytes");
+        }
+    }
+}
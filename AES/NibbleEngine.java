@@ -0,0 +1,100 @@
+/**
+ * Super-table engine for the simplified variant.
+ *
+ * The simplified S-Box only reads the low nibble of each byte, so after
+ * ShiftRows an output column of MixColumns depends on just four nibbles,
+ * one from each input column. One 65,536-entry table indexed by those 16
+ * bits holds the finished column, and a round is four lookups plus the
+ * round-key XOR. The same table serves all four columns because
+ * MixColumns is circulant; ShiftRows only changes which state words the
+ * nibbles are taken from.
+ *
+ * The table is 256 KiB, so it lives in L2 rather than L1. Whether that
+ * beats the four 1 KiB T-tables depends on the CPU, which is what the
+ * calibration in BlockEngines decides. Decryption goes to the table engine.
+ */
+final class NibbleEngine implements BlockEngine {
+    private static final int Nb = 4;
+    private static final int Nr = 10;
+
+    static final NibbleEngine INSTANCE = new NibbleEngine();
+
+    // SubBytes, ShiftRows and MixColumns for one column, indexed by the row
+    // 0..3 nibbles n0 n1 n2 n3 as n0 << 12 | n1 << 8 | n2 << 4 | n3
+    private static final int[] COLUMN = new int[1 << 16];
+
+    // Simplified S-Box indexed by the whole byte, for the final round
+    private static final int[] SBOX = SimplifiedAES128.tables(SimplifiedAES128.Variant.SIMPLIFIED).sbox;
+
+    static {
+        SimplifiedAES128.Tables t = SimplifiedAES128.tables(SimplifiedAES128.Variant.SIMPLIFIED);
+        for (int i = 0; i < COLUMN.length; i++) {
+            COLUMN[i] = t.te0[i >>> 12] ^ t.te1[(i >>> 8) & 0xF] ^ t.te2[(i >>> 4) & 0xF] ^ t.te3[i & 0xF];
+        }
+    }
+
+    private NibbleEngine() {
+    }
+
+    @Override
+    public String name() {
+        return "nibble";
+    }
+
+    @Override
+    public boolean supports(SimplifiedAES128.Variant variant) {
+        return variant == SimplifiedAES128.Variant.SIMPLIFIED;
+    }
+
+    @Override
+    public void encryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        int[] w = cipher.keySchedule();
+        for (; blocks > 0; blocks--, inOff += 16, outOff += 16) {
+            int s0 = TableEngine.loadColumn(in, inOff) ^ w[0];
+            int s1 = TableEngine.loadColumn(in, inOff + 4) ^ w[1];
+            int s2 = TableEngine.loadColumn(in, inOff + 8) ^ w[2];
+            int s3 = TableEngine.loadColumn(in, inOff + 12) ^ w[3];
+
+            int k = Nb;
+            for (int round = 1; round < Nr; round++) {
+                int t0 = COLUMN[index(s0, s1, s2, s3)] ^ w[k];
+                int t1 = COLUMN[index(s1, s2, s3, s0)] ^ w[k + 1];
+                int t2 = COLUMN[index(s2, s3, s0, s1)] ^ w[k + 2];
+                int t3 = COLUMN[index(s3, s0, s1, s2)] ^ w[k + 3];
+                s0 = t0;
+                s1 = t1;
+                s2 = t2;
+                s3 = t3;
+                k += Nb;
+            }
+
+            // Final round (no mixColumns)
+            TableEngine.storeColumn(finalColumn(s0, s1, s2, s3) ^ w[k], out, outOff);
+            TableEngine.storeColumn(finalColumn(s1, s2, s3, s0) ^ w[k + 1], out, outOff + 4);
+            TableEngine.storeColumn(finalColumn(s2, s3, s0, s1) ^ w[k + 2], out, outOff + 8);
+            TableEngine.storeColumn(finalColumn(s3, s0, s1, s2) ^ w[k + 3], out, outOff + 12);
+        }
+    }
+
+    @Override
+    public void decryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        TableEngine.INSTANCE.decryptBlocks(cipher, in, inOff, out, outOff, blocks);
+    }
+
+    /**
+     * Gathers the low nibble of row r from the r-th argument
+     */
+    private static int index(int a, int b, int c, int d) {
+        return ((a >>> 12) & 0xF000) | ((b >>> 8) & 0x0F00) | ((c >>> 4) & 0x00F0) | (d & 0x000F);
+    }
+
+    /**
+     * SubBytes and ShiftRows for one output column of the final round
+     */
+    private static int finalColumn(int a, int b, int c, int d) {
+        return (SBOX[a >>> 24] << 24)
+             | (SBOX[(b >>> 16) & 0xFF] << 16)
+             | (SBOX[(c >>> 8) & 0xFF] << 8)
+             |  SBOX[d & 0xFF];
+    }
+}
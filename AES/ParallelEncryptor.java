@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parallel CTR encryption of streams.
+ *
+ * The input is read in batches of {@link #CHUNK} bytes per pool worker.
+ * Each batch is one CTR range, split into independent chunks that the
+ * pool's workers encrypt with work stealing, and batches are written in
+ * input order. While one batch is being encrypted the next one is read,
+ * so I/O overlaps the cipher work.
+ *
+ * Encryption and decryption are the same operation. An instance keeps its
+ * stream position across calls and is not safe for concurrent use.
+ */
+public class ParallelEncryptor {
+    // Bytes read per pool worker and batch
+    static final int CHUNK = 1 << 20;
+
+    private final CtrMode ctr;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    // Batch buffers, allocated on first use and kept for later calls
+    private byte[] current;
+    private byte[] next;
+
+    /**
+     * Uses the common ForkJoinPool
+     * @param cipher The block cipher producing the keystream
+     * @param iv The 16-byte initial counter block
+     */
+    public ParallelEncryptor(SimplifiedAES128 cipher, byte[] iv) {
+        this(cipher, iv, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param cipher The block cipher producing the keystream
+     * @param iv The 16-byte initial counter block
+     * @param pool Pool whose workers encrypt the chunks
+     */
+    public ParallelEncryptor(SimplifiedAES128 cipher, byte[] iv, ForkJoinPool pool) {
+        this.ctr = new CtrMode(cipher, iv, pool);
+        this.pool = pool;
+        this.batchSize = CHUNK * Math.max(1, pool.getParallelism());
+    }
+
+    /**
+     * Encrypts or decrypts everything {@code in} yields into {@code out},
+     * continuing at the current keystream position. Neither stream is
+     * closed. If reading or writing fails, no encryption task is left
+     * running and the position is left at the end of the last batch
+     * written, so the instance can be reused.
+     * @param in Source stream, read to the end
+     * @param out Destination stream
+     * @return Number of bytes processed
+     */
+    public long process(InputStream in, OutputStream out) throws IOException {
+        if (current == null) {
+            current = new byte[batchSize];
+            next = new byte[batchSize];
+        }
+        long total = 0;
+
+        int n = readFully(in, current);
+        while (n > 0) {
+            int len = n;
+            byte[] batch = current;
+            ForkJoinTask<?> task = pool.submit(() -> ctr.process(batch, 0, batch, 0, len));
+
+            // Read ahead while the pool encrypts
+            int m;
+            boolean readAhead = false;
+            try {
+                m = readFully(in, next);
+                readAhead = true;
+            } finally {
+                // The task XORs batch in place and moves the keystream
+                // position, so it must not outlive this call
+                task.join();
+                if (!readAhead) {
+                    ctr.seek(ctr.position() - len);
+                }
+            }
+            try {
+                out.write(batch, 0, len);
+            } catch (IOException | RuntimeException e) {
+                ctr.seek(ctr.position() - len);
+                throw e;
+            }
+            total += n;
+
+            current = next;
+            next = batch;
+            n = m;
+        }
+        return total;
+    }
+
+    /**
+     * Encrypts or decrypts a whole array at the current keystream position
+     * @param input Source bytes
+     * @return A new array with the transformed bytes
+     */
+    public byte[] process(byte[] input) {
+        return ctr.process(input);
+    }
+
+    /**
+     * @return The current byte offset into the keystream
+     */
+    public long position() {
+        return ctr.position();
+    }
+
+    /**
+     * Reads until the buffer is full or the stream ends
+     * @return Number of bytes read, 0 at end of stream
+     */
+    private static int readFully(InputStream in, byte[] buf) throws IOException {
+        int n = 0;
+        while (n < buf.length) {
+            int r = in.read(buf, n, buf.length - n);
+            if (r < 0) {
+                break;
+            }
+            n += r;
+        }
+        return n;
+    }
+}
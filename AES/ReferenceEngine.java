@@ -0,0 +1,169 @@
+/**
+ * Reference engine running the round functions one by one on a 4x4 byte
+ * state matrix, exactly as the algorithm is written down. It is slow and
+ * allocates per block; it is kept to cross-check the faster engines.
+ */
+final class ReferenceEngine implements BlockEngine {
+    private static final int Nb = 4;
+    private static final int Nr = 10;
+
+    static final ReferenceEngine INSTANCE = new ReferenceEngine();
+
+    private ReferenceEngine() {
+    }
+
+    @Override
+    public String name() {
+        return "reference";
+    }
+
+    @Override
+    public boolean supports(SimplifiedAES128.Variant variant) {
+        return true;
+    }
+
+    @Override
+    public void encryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        int[] w = cipher.keySchedule();
+        SimplifiedAES128.Tables tables = SimplifiedAES128.tables(cipher.variant());
+        for (; blocks > 0; blocks--, inOff += 16, outOff += 16) {
+            byte[][] state = load(in, inOff);
+
+            // Initial round
+            addRoundKey(state, w, 0);
+
+            // Main rounds
+            for (int round = 1; round < Nr; round++) {
+                subBytes(state, tables.sbox);
+                shiftRows(state);
+                mixColumns(state, tables.mix);
+                addRoundKey(state, w, round);
+            }
+
+            // Final round (no mixColumns)
+            subBytes(state, tables.sbox);
+            shiftRows(state);
+            addRoundKey(state, w, Nr);
+
+            store(state, out, outOff);
+        }
+    }
+
+    @Override
+    public void decryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        int[] w = cipher.keySchedule();
+        SimplifiedAES128.Tables tables = SimplifiedAES128.tables(cipher.variant());
+        for (; blocks > 0; blocks--, inOff += 16, outOff += 16) {
+            byte[][] state = load(in, inOff);
+
+            // Initial round
+            addRoundKey(state, w, Nr);
+
+            // Main rounds
+            for (int round = Nr - 1; round > 0; round--) {
+                invShiftRows(state);
+                subBytes(state, tables.invSbox);
+                addRoundKey(state, w, round);
+                mixColumns(state, tables.invMix);
+            }
+
+            // Final round (no invMixColumns)
+            invShiftRows(state);
+            subBytes(state, tables.invSbox);
+            addRoundKey(state, w, 0);
+
+            store(state, out, outOff);
+        }
+    }
+
+    /**
+     * Converts a block to the state matrix, byte i at row i % 4, column i / 4
+     */
+    private static byte[][] load(byte[] in, int off) {
+        byte[][] state = new byte[4][Nb];
+        for (int i = 0; i < 16; i++) {
+            state[i % 4][i / 4] = in[off + i];
+        }
+        return state;
+    }
+
+    /**
+     * Converts the state matrix back to a block
+     */
+    private static void store(byte[][] state, byte[] out, int off) {
+        for (int i = 0; i < 16; i++) {
+            out[off + i] = state[i % 4][i / 4];
+        }
+    }
+
+    /**
+     * SubBytes, or InvSubBytes with the inverse box. In the simplified
+     * variant only the lower 4 bits of each byte select the value.
+     */
+    private static void subBytes(byte[][] state, int[] box) {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < Nb; j++) {
+                state[i][j] = (byte) box[state[i][j] & 0xFF];
+            }
+        }
+    }
+
+    /**
+     * Shifts the rows of the state matrix
+     * Row 0: no shift, Row 1: shift 1, Row 2: shift 2, Row 3: shift 3
+     */
+    private static void shiftRows(byte[][] state) {
+        byte[] t = new byte[4];
+
+        for (int i = 1; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                t[j] = state[i][(j + i) % 4];
+            }
+            System.arraycopy(t, 0, state[i], 0, 4);
+        }
+    }
+
+    /**
+     * Inverse of shiftRows - shifts rows in opposite direction
+     */
+    private static void invShiftRows(byte[][] state) {
+        byte[] t = new byte[4];
+
+        for (int i = 1; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                t[j] = state[i][(j - i + 4) % 4];
+            }
+            System.arraycopy(t, 0, state[i], 0, 4);
+        }
+    }
+
+    /**
+     * Multiplies each column by the circulant matrix whose first row holds
+     * the multiplication tables m; row i is that row rotated right by i.
+     * Serves MixColumns and, with the inverse coefficients, InvMixColumns.
+     */
+    private static void mixColumns(byte[][] state, int[][] m) {
+        for (int j = 0; j < Nb; j++) {
+            int a0 = state[0][j] & 0xFF;
+            int a1 = state[1][j] & 0xFF;
+            int a2 = state[2][j] & 0xFF;
+            int a3 = state[3][j] & 0xFF;
+
+            state[0][j] = (byte) (m[0][a0] ^ m[1][a1] ^ m[2][a2] ^ m[3][a3]);
+            state[1][j] = (byte) (m[3][a0] ^ m[0][a1] ^ m[1][a2] ^ m[2][a3]);
+            state[2][j] = (byte) (m[2][a0] ^ m[3][a1] ^ m[0][a2] ^ m[1][a3]);
+            state[3][j] = (byte) (m[1][a0] ^ m[2][a1] ^ m[3][a2] ^ m[0][a3]);
+        }
+    }
+
+    /**
+     * Adds the round key to the state matrix
+     */
+    private static void addRoundKey(byte[][] state, int[] w, int round) {
+        for (int c = 0; c < Nb; c++) {
+            for (int r = 0; r < 4; r++) {
+                state[r][c] ^= (byte) (w[round * Nb + c] >>> (24 - 8 * r));
+            }
+        }
+    }
+}
@@ -1,8 +1,28 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+
+/**
+ * Simplified AES-128 block cipher.
+ *
+ * Instances are immutable after construction: the key is read once to
+ * compute the encryption and decryption key schedules into final fields,
+ * which are never written again, and no copy of the raw key is kept.
+ * Later changes to the caller's key array cannot leak in, so one instance
+ * can be shared freely between threads. The only lazily filled state is an
+ * engine's own form of the schedule (see {@link #preparedKey}): it is
+ * derived from the final schedule alone, so threads that race to build it
+ * publish equal values and callers cannot observe the difference.
+ */
 public class SimplifiedAES128 {
     // Constants
     private static final int Nb = 4;  // Number of columns in state
     private static final int Nk = 4;  // Number of 32-bit words in key
     private static final int Nr = 10; // Number of rounds
+
+    // Staging size for ByteBuffers without an accessible backing array
+    private static final int BUFFER_CHUNK = 4096;
     
     // Simplified S-Box (16 values instead of 256)
     // This is a representative subset arranged in a 4x4 grid for easier memorization
@@ -26,17 +46,175 @@ public class SimplifiedAES128 {
         0x01, 0x02, 0x04, 0x08, 0x10
     };
 
-    // Instance variables
-    private byte[] key;
-    private byte[][] w;
+    // Full AES S-Box (256 values), row = high nibble, column = low nibble
+    private static final int[] FullSBox = {
+        0x63, 0x7c, 0x77, 0x7b, 0xf2, 0x6b, 0x6f, 0xc5, 0x30, 0x01, 0x67, 0x2b, 0xfe, 0xd7, 0xab, 0x76,
+        0xca, 0x82, 0xc9, 0x7d, 0xfa, 0x59, 0x47, 0xf0, 0xad, 0xd4, 0xa2, 0xaf, 0x9c, 0xa4, 0x72, 0xc0,
+        0xb7, 0xfd, 0x93, 0x26, 0x36, 0x3f, 0xf7, 0xcc, 0x34, 0xa5, 0xe5, 0xf1, 0x71, 0xd8, 0x31, 0x15,
+        0x04, 0xc7, 0x23, 0xc3, 0x18, 0x96, 0x05, 0x9a, 0x07, 0x12, 0x80, 0xe2, 0xeb, 0x27, 0xb2, 0x75,
+        0x09, 0x83, 0x2c, 0x1a, 0x1b, 0x6e, 0x5a, 0xa0, 0x52, 0x3b, 0xd6, 0xb3, 0x29, 0xe3, 0x2f, 0x84,
+        0x53, 0xd1, 0x00, 0xed, 0x20, 0xfc, 0xb1, 0x5b, 0x6a, 0xcb, 0xbe, 0x39, 0x4a, 0x4c, 0x58, 0xcf,
+        0xd0, 0xef, 0xaa, 0xfb, 0x43, 0x4d, 0x33, 0x85, 0x45, 0xf9, 0x02, 0x7f, 0x50, 0x3c, 0x9f, 0xa8,
+        0x51, 0xa3, 0x40, 0x8f, 0x92, 0x9d, 0x38, 0xf5, 0xbc, 0xb6, 0xda, 0x21, 0x10, 0xff, 0xf3, 0xd2,
+        0xcd, 0x0c, 0x13, 0xec, 0x5f, 0x97, 0x44, 0x17, 0xc4, 0xa7, 0x7e, 0x3d, 0x64, 0x5d, 0x19, 0x73,
+        0x60, 0x81, 0x4f, 0xdc, 0x22, 0x2a, 0x90, 0x88, 0x46, 0xee, 0xb8, 0x14, 0xde, 0x5e, 0x0b, 0xdb,
+        0xe0, 0x32, 0x3a, 0x0a, 0x49, 0x06, 0x24, 0x5c, 0xc2, 0xd3, 0xac, 0x62, 0x91, 0x95, 0xe4, 0x79,
+        0xe7, 0xc8, 0x37, 0x6d, 0x8d, 0xd5, 0x4e, 0xa9, 0x6c, 0x56, 0xf4, 0xea, 0x65, 0x7a, 0xae, 0x08,
+        0xba, 0x78, 0x25, 0x2e, 0x1c, 0xa6, 0xb4, 0xc6, 0xe8, 0xdd, 0x74, 0x1f, 0x4b, 0xbd, 0x8b, 0x8a,
+        0x70, 0x3e, 0xb5, 0x66, 0x48, 0x03, 0xf6, 0x0e, 0x61, 0x35, 0x57, 0xb9, 0x86, 0xc1, 0x1d, 0x9e,
+        0xe1, 0xf8, 0x98, 0x11, 0x69, 0xd9, 0x8e, 0x94, 0x9b, 0x1e, 0x87, 0xe9, 0xce, 0x55, 0x28, 0xdf,
+        0x8c, 0xa1, 0x89, 0x0d, 0xbf, 0xe6, 0x42, 0x68, 0x41, 0x99, 0x2d, 0x0f, 0xb0, 0x54, 0xbb, 0x16
+    };
+
+    // Full AES Inverse S-Box, derived from FullSBox at class init
+    private static final int[] FullInvSBox = new int[256];
+
+    static {
+        for (int x = 0; x < 256; x++) {
+            FullInvSBox[FullSBox[x]] = x;
+        }
+    }
+
+    // Full AES Round constants (one per round)
+    private static final int[] FullRcon = {
+        0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36
+    };
+
+    // Galois Field multiplication tables, MULn[x] = n * x. The simplified
+    // MixColumns needs x2 and x3; x9, x11, x13 and x14 are the coefficients
+    // of the standards-compliant inverse MixColumns.
+    private static final int[] MUL1 = new int[256];
+    private static final int[] MUL2 = new int[256];
+    private static final int[] MUL3 = new int[256];
+    private static final int[] MUL9 = new int[256];
+    private static final int[] MUL11 = new int[256];
+    private static final int[] MUL13 = new int[256];
+    private static final int[] MUL14 = new int[256];
+
+    static {
+        for (int x = 0; x < 256; x++) {
+            MUL1[x] = x;
+            MUL2[x] = gfMul(x, 2);
+            MUL3[x] = gfMul(x, 3);
+            MUL9[x] = gfMul(x, 9);
+            MUL11[x] = gfMul(x, 11);
+            MUL13[x] = gfMul(x, 13);
+            MUL14[x] = gfMul(x, 14);
+        }
+    }
+
+    /**
+     * Selects the S-Box and round functions of the cipher
+     */
+    public enum Variant {
+        /**
+         * 16-entry S-Box on the low nibble of each byte with the simplified
+         * MixColumns. Easy to follow by hand, but not invertible.
+         */
+        SIMPLIFIED,
+        /**
+         * 256-entry S-Box with its true inverse, the standard MixColumns
+         * and round constants, i.e. AES-128 as in FIPS-197. Round-trips.
+         */
+        FULL
+    }
+
+    private static final Tables SIMPLIFIED_TABLES = new Tables(
+            expand(SBox), expand(InvSBox), new int[] {2, 1, 1, 1}, new int[] {3, 2, 1, 1}, Rcon);
+    private static final Tables FULL_TABLES = new Tables(
+            FullSBox, FullInvSBox, new int[] {2, 3, 1, 1}, new int[] {14, 11, 13, 9}, FullRcon);
+
+    // Instance variables, never modified after construction
+    private final Variant variant;
+    private final int[] w; // Key schedule, one big-endian int per column (row 0 high)
+    private final int[] dk; // w with InvMixColumns applied to rounds 1..Nr-1
+    private final BlockEngines.Slot slot; // Engine for this variant, may switch after calibration
+
+    // An engine's own form of w, built on first use by that engine. Racing
+    // threads build identical values, so the cipher still behaves as immutable.
+    private volatile PreparedKey preparedKey;
 
     /**
-     * Constructor initializes with encryption key
+     * Constructor initializes with encryption key, using the simplified S-Box
      * @param key The 16-byte encryption key
      */
     public SimplifiedAES128(byte[] key) {
-        this.key = key;
-        this.w = keyExpansion(key);
+        this(key, Variant.SIMPLIFIED);
+    }
+
+    /**
+     * Constructor initializes with encryption key and S-Box variant
+     * @param key The 16-byte encryption key
+     * @param variant Simplified 16-entry or full 256-entry S-Box
+     */
+    public SimplifiedAES128(byte[] key, Variant variant) {
+        this(key, variant, BlockEngines.forVariant(variant));
+    }
+
+    /**
+     * Constructor pinning the block engine instead of following the selection
+     * @param key The 16-byte encryption key
+     * @param variant Simplified 16-entry or full 256-entry S-Box
+     * @param engine Engine running the rounds; must support the variant
+     */
+    SimplifiedAES128(byte[] key, Variant variant, BlockEngine engine) {
+        this(key, variant, new BlockEngines.Slot(engine));
+    }
+
+    private SimplifiedAES128(byte[] key, Variant variant, BlockEngines.Slot slot) {
+        BlockEngine engine = slot.engine;
+        if (key.length != 16) {
+            throw new IllegalArgumentException("Key must be 16 bytes, got " + key.length);
+        }
+        if (!engine.supports(variant)) {
+            throw new IllegalArgumentException("Engine " + engine.name() + " does not support " + variant);
+        }
+        this.variant = variant;
+        this.w = keyExpansion(key, tables(variant));
+        this.dk = decryptionKeySchedule(w, tables(variant));
+        this.slot = slot;
+    }
+
+    /**
+     * @return The S-Box variant this cipher was created with
+     */
+    public Variant variant() {
+        return variant;
+    }
+
+    /**
+     * @return Name of the block engine running this cipher's rounds
+     */
+    public String engine() {
+        return slot.engine.name();
+    }
+
+    /**
+     * @return The expanded key, one big-endian int per column; not a copy
+     */
+    int[] keySchedule() {
+        return w;
+    }
+
+    /**
+     * @return The equivalent inverse cipher's key schedule, laid out like
+     *         {@link #keySchedule()}; not a copy
+     */
+    int[] decryptionKeySchedule() {
+        return dk;
+    }
+
+    /**
+     * @param engine The engine asking, which must be this cipher's engine
+     * @return The engine's per-key data from {@link BlockEngine#prepareKey(int[])}
+     */
+    Object preparedKey(BlockEngine engine) {
+        PreparedKey prepared = preparedKey;
+        if (prepared == null || prepared.engine != engine) {
+            prepared = new PreparedKey(engine, engine.prepareKey(w));
+            preparedKey = prepared;
+        }
+        return prepared.data;
     }
 
     /**
@@ -45,35 +223,8 @@ public class SimplifiedAES128 {
      * @return The 16-byte encrypted block
      */
     public byte[] encrypt(byte[] input) {
-        byte[][] state = new byte[4][Nb];
-        
-        // Convert input array to state matrix
-        for (int i = 0; i < input.length; i++) {
-            state[i % 4][i / 4] = input[i];
-        }
-        
-        // Initial round
-        addRoundKey(state, 0);
-        
-        // Main rounds
-        for (int round = 1; round < Nr; round++) {
-            subBytes(state);
-            shiftRows(state);
-            mixColumns(state);
-            addRoundKey(state, round);
-        }
-        
-        // Final round (no mixColumns)
-        subBytes(state);
-        shiftRows(state);
-        addRoundKey(state, Nr);
-        
-        // Convert state matrix to output array
         byte[] output = new byte[16];
-        for (int i = 0; i < 16; i++) {
-            output[i] = state[i % 4][i / 4];
-        }
-        
+        encryptBlock(toBlock(input), 0, output, 0);
         return output;
     }
 
@@ -83,211 +234,276 @@ public class SimplifiedAES128 {
      * @return The 16-byte decrypted block
      */
     public byte[] decrypt(byte[] input) {
-        byte[][] state = new byte[4][Nb];
-        
-        // Convert input array to state matrix
-        for (int i = 0; i < input.length; i++) {
-            state[i % 4][i / 4] = input[i];
-        }
-        
-        // Initial round
-        addRoundKey(state, Nr);
-        
-        // Main rounds
-        for (int round = Nr - 1; round > 0; round--) {
-            invShiftRows(state);
-            invSubBytes(state);
-            addRoundKey(state, round);
-            invMixColumns(state);
-        }
-        
-        // Final round (no invMixColumns)
-        invShiftRows(state);
-        invSubBytes(state);
-        addRoundKey(state, 0);
-        
-        // Convert state matrix to output array
         byte[] output = new byte[16];
-        for (int i = 0; i < 16; i++) {
-            output[i] = state[i % 4][i / 4];
-        }
-        
+        decryptBlock(toBlock(input), 0, output, 0);
         return output;
     }
 
     /**
-     * Simplified SubBytes - uses only 16 values instead of 256
-     * Maps each byte's lower 4 bits to corresponding SBox value
+     * Encrypts one 16-byte block without allocating.
+     * Input and output may be the same array, even at the same offset.
+     * @param in Array holding the plaintext block
+     * @param inOff Offset of the block in {@code in}
+     * @param out Array receiving the encrypted block
+     * @param outOff Offset of the block in {@code out}
      */
-    private void subBytes(byte[][] state) {
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < Nb; j++) {
-                // Use only lower 4 bits for simplified lookup
-                int index = state[i][j] & 0x0F;
-                state[i][j] = (byte) SBox[index];
-            }
-        }
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        slot.engine.encryptBlocks(this, in, inOff, out, outOff, 1);
     }
 
     /**
-     * Inverse of simplified subBytes
+     * Decrypts one 16-byte block without allocating.
+     * Input and output may be the same array, even at the same offset.
+     * @param in Array holding the ciphertext block
+     * @param inOff Offset of the block in {@code in}
+     * @param out Array receiving the decrypted block
+     * @param outOff Offset of the block in {@code out}
      */
-    private void invSubBytes(byte[][] state) {
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < Nb; j++) {
-                // Use only lower 4 bits for simplified lookup
-                int index = state[i][j] & 0x0F;
-                state[i][j] = (byte) InvSBox[index];
-            }
-        }
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        slot.engine.decryptBlocks(this, in, inOff, out, outOff, 1);
     }
 
     /**
-     * Shifts the rows of the state matrix
-     * Row 0: no shift, Row 1: shift 1, Row 2: shift 2, Row 3: shift 3
+     * Encrypts consecutive 16-byte blocks (ECB) from one array into another.
+     * Input and output may be the same region.
+     * @param in Array holding the plaintext blocks
+     * @param inOff Offset of the first block in {@code in}
+     * @param out Array receiving the encrypted blocks
+     * @param outOff Offset of the first block in {@code out}
+     * @param blocks Number of blocks to process
      */
-    private void shiftRows(byte[][] state) {
-        byte[] t = new byte[4];
-        
-        for (int i = 1; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                t[j] = state[i][(j + i) % 4];
-            }
-            System.arraycopy(t, 0, state[i], 0, 4);
-        }
+    public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        slot.engine.encryptBlocks(this, in, inOff, out, outOff, blocks);
     }
 
     /**
-     * Inverse of shiftRows - shifts rows in opposite direction
+     * Decrypts consecutive 16-byte blocks (ECB) from one array into another.
+     * Input and output may be the same region.
+     * @param in Array holding the ciphertext blocks
+     * @param inOff Offset of the first block in {@code in}
+     * @param out Array receiving the decrypted blocks
+     * @param outOff Offset of the first block in {@code out}
+     * @param blocks Number of blocks to process
      */
-    private void invShiftRows(byte[][] state) {
-        byte[] t = new byte[4];
-        
-        for (int i = 1; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                t[j] = state[i][(j - i + 4) % 4];
+    public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        slot.engine.decryptBlocks(this, in, inOff, out, outOff, blocks);
+    }
+
+    /**
+     * Encrypts all remaining bytes of {@code src} into {@code dst} (ECB).
+     * Works with heap and direct buffers; both positions are advanced.
+     * The buffers must be distinct objects but may share content.
+     * @param src Plaintext, remaining length a multiple of 16
+     * @param dst Receives the ciphertext
+     * @return Number of bytes processed
+     */
+    public int encrypt(ByteBuffer src, ByteBuffer dst) {
+        return process(src, dst, true);
+    }
+
+    /**
+     * Decrypts all remaining bytes of {@code src} into {@code dst} (ECB).
+     * Works with heap and direct buffers; both positions are advanced.
+     * The buffers must be distinct objects but may share content.
+     * @param src Ciphertext, remaining length a multiple of 16
+     * @param dst Receives the plaintext
+     * @return Number of bytes processed
+     */
+    public int decrypt(ByteBuffer src, ByteBuffer dst) {
+        return process(src, dst, false);
+    }
+
+    /**
+     * Runs the multi-block loop straight on the backing arrays when both
+     * buffers have one, otherwise stages chunks through a heap array.
+     */
+    private int process(ByteBuffer src, ByteBuffer dst, boolean encrypt) {
+        int len = src.remaining();
+        if (len % 16 != 0) {
+            throw new IllegalArgumentException("Input length must be a multiple of 16, got " + len);
+        }
+        if (dst.remaining() < len) {
+            throw new BufferOverflowException();
+        }
+        if (dst.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+
+        if (src.hasArray() && dst.hasArray()) {
+            byte[] in = src.array();
+            byte[] out = dst.array();
+            int inOff = src.arrayOffset() + src.position();
+            int outOff = dst.arrayOffset() + dst.position();
+            if (encrypt) {
+                encryptBlocks(in, inOff, out, outOff, len / 16);
+            } else {
+                decryptBlocks(in, inOff, out, outOff, len / 16);
+            }
+            src.position(src.position() + len);
+            dst.position(dst.position() + len);
+            return len;
+        }
+
+        byte[] chunk = new byte[Math.min(len, BUFFER_CHUNK)];
+        for (int done = 0; done < len; done += chunk.length) {
+            int n = Math.min(chunk.length, len - done);
+            src.get(chunk, 0, n);
+            if (encrypt) {
+                encryptBlocks(chunk, 0, chunk, 0, n / 16);
+            } else {
+                decryptBlocks(chunk, 0, chunk, 0, n / 16);
             }
-            System.arraycopy(t, 0, state[i], 0, 4);
+            dst.put(chunk, 0, n);
         }
+        return len;
     }
 
     /**
-     * Simplified MixColumns using easier coefficients
+     * Zero-pads short inputs to a full block, as the byte-matrix version did
      */
-    private void mixColumns(byte[][] state) {
-        for (int j = 0; j < Nb; j++) {
-            byte a0 = state[0][j];
-            byte a1 = state[1][j];
-            byte a2 = state[2][j];
-            byte a3 = state[3][j];
-            
-            state[0][j] = (byte) (gmul(a0, 2) ^ a1 ^ a2 ^ a3);           // 2,1,1,1
-            state[1][j] = (byte) (a0 ^ gmul(a1, 2) ^ a2 ^ a3);           // 1,2,1,1
-            state[2][j] = (byte) (a0 ^ a1 ^ gmul(a2, 2) ^ a3);           // 1,1,2,1
-            state[3][j] = (byte) (a0 ^ a1 ^ a2 ^ gmul(a3, 2));           // 1,1,1,2
+    private static byte[] toBlock(byte[] input) {
+        if (input.length > 16) {
+            throw new IllegalArgumentException("Block must be at most 16 bytes, got " + input.length);
         }
+        return input.length == 16 ? input : Arrays.copyOf(input, 16);
     }
 
     /**
-     * Simplified Inverse MixColumns
+     * Expands the cipher key into the key schedule
      */
-    private void invMixColumns(byte[][] state) {
-        for (int j = 0; j < Nb; j++) {
-            byte a0 = state[0][j];
-            byte a1 = state[1][j];
-            byte a2 = state[2][j];
-            byte a3 = state[3][j];
-            
-            state[0][j] = (byte) (gmul(a0, 3) ^ gmul(a1, 2) ^ a2 ^ a3);   // 3,2,1,1
-            state[1][j] = (byte) (a0 ^ gmul(a1, 3) ^ gmul(a2, 2) ^ a3);   // 1,3,2,1
-            state[2][j] = (byte) (a0 ^ a1 ^ gmul(a2, 3) ^ gmul(a3, 2));   // 1,1,3,2
-            state[3][j] = (byte) (gmul(a0, 2) ^ a1 ^ a2 ^ gmul(a3, 3));   // 2,1,1,3
-        }
+    private static int[] keyExpansion(byte[] key, Tables t) {
+        int[] w = new int[Nb * (Nr + 1)];
+        expandKey(key, 0, t.sbox, t.rcon, w);
+        return w;
+    }
+
+    /**
+     * Expands a key into an existing schedule array without allocating, for
+     * callers that rekey per block such as DaviesMeyerHash
+     * @param key Array holding the 16-byte key
+     * @param keyOff Offset of the key in {@code key}
+     * @param variant S-Box and round constants to expand with
+     * @param w Destination, at least 44 ints
+     */
+    static void expandKey(byte[] key, int keyOff, Variant variant, int[] w) {
+        Tables t = tables(variant);
+        expandKey(key, keyOff, t.sbox, t.rcon, w);
     }
 
     /**
-     * Adds the round key to the state matrix
+     * Computes each round key from the previous one in four locals, so the
+     * schedule array is only ever written
      */
-    private void addRoundKey(byte[][] state, int round) {
-        for (int c = 0; c < Nb; c++) {
-            for (int r = 0; r < 4; r++) {
-                state[r][c] ^= w[round * Nb + c][r];
+    private static void expandKey(byte[] key, int keyOff, int[] sbox, int[] rcon, int[] w) {
+        int w0 = TableEngine.loadColumn(key, keyOff);
+        int w1 = TableEngine.loadColumn(key, keyOff + 4);
+        int w2 = TableEngine.loadColumn(key, keyOff + 8);
+        int w3 = TableEngine.loadColumn(key, keyOff + 12);
+        w[0] = w0;
+        w[1] = w1;
+        w[2] = w2;
+        w[3] = w3;
+
+        int rc = 0;
+        for (int round = 1; round <= Nr; round++) {
+            w0 ^= subWord(rotWord(w3), sbox) ^ (rcon[rc] << 24);
+            // Simplified: only 5 round constants, reused cyclically
+            if (++rc == rcon.length) {
+                rc = 0;
             }
+            w1 ^= w0;
+            w2 ^= w1;
+            w3 ^= w2;
+            int i = round * Nb;
+            w[i] = w0;
+            w[i + 1] = w1;
+            w[i + 2] = w2;
+            w[i + 3] = w3;
         }
     }
 
     /**
-     * Expands the cipher key into the key schedule
+     * Derives the key schedule of the equivalent inverse cipher. Because
+     * InvMixColumns is linear, InvMixColumns(s ^ k) equals
+     * InvMixColumns(s) ^ InvMixColumns(k), so decryption can apply it
+     * before adding the round key if the middle round keys are
+     * pre-transformed. The first and last round keys stay as they are.
      */
-    private byte[][] keyExpansion(byte[] key) {
-        byte[][] w = new byte[Nb * (Nr + 1)][4];
-        
-        // Copy the key into the first Nk words
-        for (int i = 0; i < Nk; i++) {
-            w[i][0] = key[4 * i];
-            w[i][1] = key[4 * i + 1];
-            w[i][2] = key[4 * i + 2];
-            w[i][3] = key[4 * i + 3];
+    private static int[] decryptionKeySchedule(int[] w, Tables t) {
+        int[] dk = w.clone();
+        for (int i = Nb; i < Nr * Nb; i++) {
+            int k = w[i];
+            dk[i] = t.im0[k >>> 24] ^ t.im1[(k >>> 16) & 0xFF] ^ t.im2[(k >>> 8) & 0xFF] ^ t.im3[k & 0xFF];
         }
-        
-        // Generate the rest of the key schedule
-        byte[] temp = new byte[4];
-        for (int i = Nk; i < Nb * (Nr + 1); i++) {
-            temp = w[i - 1].clone();
-            
-            if (i % Nk == 0) {
-                temp = subWord(rotWord(temp));
-                temp[0] ^= Rcon[(i / Nk - 1) % Rcon.length]; // Use only 5 round constants
-            }
-            
-            for (int j = 0; j < 4; j++) {
-                w[i][j] = (byte) (w[i - Nk][j] ^ temp[j]);
-            }
+        return dk;
+    }
+
+    /**
+     * Applies the S-Box to each byte in a word
+     */
+    private static int subWord(int word, int[] sbox) {
+        return (sbox[word >>> 24] << 24)
+             | (sbox[(word >>> 16) & 0xFF] << 16)
+             | (sbox[(word >>> 8) & 0xFF] << 8)
+             |  sbox[word & 0xFF];
+    }
+
+    /**
+     * Performs a cyclic permutation on a word
+     */
+    private static int rotWord(int word) {
+        return Integer.rotateLeft(word, 8);
+    }
+
+    /**
+     * Widens a 16-entry simplified box to 256 entries indexed by the whole
+     * byte, so lookups need no "& 0x0F" mask
+     */
+    private static int[] expand(int[] box16) {
+        int[] box = new int[256];
+        for (int x = 0; x < 256; x++) {
+            box[x] = box16[x & 0x0F];
         }
-        
-        return w;
+        return box;
     }
 
     /**
-     * Applies the simplified S-Box to each byte in a word
+     * Returns the MULn table for a MixColumns coefficient
      */
-    private byte[] subWord(byte[] word) {
-        for (int i = 0; i < 4; i++) {
-            int index = word[i] & 0x0F; // Use only lower 4 bits for simplified lookup
-            word[i] = (byte) SBox[index];
+    private static int[] mulTable(int coef) {
+        switch (coef) {
+            case 1: return MUL1;
+            case 2: return MUL2;
+            case 3: return MUL3;
+            case 9: return MUL9;
+            case 11: return MUL11;
+            case 13: return MUL13;
+            case 14: return MUL14;
+            default: throw new IllegalArgumentException("No table for coefficient " + coef);
         }
-        return word;
     }
 
     /**
-     * Performs a cyclic permutation on a word
+     * Multiplication by 2 in the simplified field, on an unsigned byte value
      */
-    private byte[] rotWord(byte[] word) {
-        byte temp = word[0];
-        word[0] = word[1];
-        word[1] = word[2];
-        word[2] = word[3];
-        word[3] = temp;
-        return word;
+    private static int xtime(int a) {
+        return ((a << 1) ^ ((a & 0x80) != 0 ? 0x1b : 0)) & 0xFF;
     }
 
     /**
-     * Simplified Galois Field multiplication
-     * Only implements multiplication by 2 and 3
+     * Galois Field multiplication of two unsigned byte values by shift and
+     * add. Only used to fill the MUL tables at class init.
      */
-    private byte gmul(byte a, int b) {
-        if (b == 1) return a;
-        if (b == 2) {
-            byte result = (byte)(a << 1);
-            if ((a & 0x80) != 0) {
-                result ^= 0x1b; // XOR with simplified field polynomial
+    private static int gfMul(int a, int b) {
+        int result = 0;
+        while (b != 0) {
+            if ((b & 1) != 0) {
+                result ^= a;
             }
-            return result;
+            a = xtime(a);
+            b >>>= 1;
         }
-        if (b == 3) {
-            return (byte)(gmul(a, 2) ^ a);
-        }
-        return 0;
+        return result;
     }
 
     /**
@@ -321,5 +537,103 @@ public class SimplifiedAES128 {
         
         // Verify decryption worked
         System.out.println("\nDecrypted text: " + new String(decrypted));
+
+        // The full S-Box variant is invertible, so it round-trips
+        SimplifiedAES128 full = new SimplifiedAES128(key, Variant.FULL);
+        byte[] roundTrip = full.decrypt(full.encrypt(plaintext));
+        System.out.println("Full S-Box round trip: " + new String(roundTrip));
+    }
+
+    /**
+     * @return The lookup tables and constants of a variant
+     */
+    static Tables tables(Variant variant) {
+        return variant == Variant.FULL ? FULL_TABLES : SIMPLIFIED_TABLES;
+    }
+
+    /**
+     * Per-key data and the engine it was prepared for
+     */
+    private static final class PreparedKey {
+        final BlockEngine engine;
+        final Object data;
+
+        PreparedKey(BlockEngine engine, Object data) {
+            this.engine = engine;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Lookup tables and constants of one cipher variant
+     */
+    static final class Tables {
+        final int[] sbox;       // S-Box indexed by the whole byte
+        final int[] invSbox;    // Inverse S-Box indexed by the whole byte
+        final int[][] mix;      // MUL tables for the first MixColumns row
+        final int[][] invMix;   // MUL tables for the first inverse MixColumns row
+        final int[] rcon;       // Round constants, reused cyclically
+
+        // Encryption T-tables: SubBytes, ShiftRows and MixColumns folded into
+        // one 32-bit lookup per state byte. teR[x] is the MixColumns column
+        // contributed by input byte x sitting in row R (row 0 in the high byte).
+        final int[] te0 = new int[256];
+        final int[] te1 = new int[256];
+        final int[] te2 = new int[256];
+        final int[] te3 = new int[256];
+
+        // Inverse MixColumns column contributed by byte x in row R
+        final int[] im0 = new int[256];
+        final int[] im1 = new int[256];
+        final int[] im2 = new int[256];
+        final int[] im3 = new int[256];
+
+        // Decryption T-tables for the equivalent inverse cipher: InvSubBytes
+        // and InvMixColumns folded together, tdR[x] = imR[invSbox[x]]
+        final int[] td0 = new int[256];
+        final int[] td1 = new int[256];
+        final int[] td2 = new int[256];
+        final int[] td3 = new int[256];
+
+        Tables(int[] sbox, int[] invSbox, int[] mixRow, int[] invMixRow, int[] rcon) {
+            this.sbox = sbox;
+            this.invSbox = invSbox;
+            this.rcon = rcon;
+            this.mix = new int[4][];
+            this.invMix = new int[4][];
+            for (int i = 0; i < 4; i++) {
+                mix[i] = mulTable(mixRow[i]);
+                invMix[i] = mulTable(invMixRow[i]);
+            }
+
+            for (int x = 0; x < 256; x++) {
+                int t = column(mix, sbox[x]);
+                te0[x] = t;
+                te1[x] = Integer.rotateRight(t, 8);
+                te2[x] = Integer.rotateRight(t, 16);
+                te3[x] = Integer.rotateRight(t, 24);
+
+                int u = column(invMix, x);
+                im0[x] = u;
+                im1[x] = Integer.rotateRight(u, 8);
+                im2[x] = Integer.rotateRight(u, 16);
+                im3[x] = Integer.rotateRight(u, 24);
+            }
+
+            for (int x = 0; x < 256; x++) {
+                td0[x] = im0[invSbox[x]];
+                td1[x] = im1[invSbox[x]];
+                td2[x] = im2[invSbox[x]];
+                td3[x] = im3[invSbox[x]];
+            }
+        }
+
+        /**
+         * Column produced by byte x in row 0 of a circulant mix matrix:
+         * output row i gets coefficient m[(4 - i) % 4]
+         */
+        private static int column(int[][] m, int x) {
+            return (m[0][x] << 24) | (m[3][x] << 16) | (m[2][x] << 8) | m[1][x];
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+import java.util.function.IntBinaryOperator;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD encryption for the simplified variant on the JDK Vector API.
+ *
+ * One vector holds as many whole blocks as the preferred species fits:
+ * one block at 128 bits, two at 256, four at 512. The state keeps the
+ * byte layout of the block, so every round step is lane-wise:
+ *
+ * - SubBytes: the simplified S-Box only reads the low nibble, so it is a
+ *   16-lane table lookup done with selectFrom
+ * - ShiftRows: a fixed rearrange within each block
+ * - MixColumns: xtime on every lane plus rotations within each column
+ * - AddRoundKey: XOR with the round key repeated across the blocks
+ *
+ * Blocks that do not fill a whole vector, and decryption, go to the table
+ * engine.
+ *
+ * jdk.incubator.vector has to be resolved both to compile and to run this
+ * class. BlockEngines only loads it reflectively and leaves it out when it
+ * cannot be loaded.
+ */
+final class VectorEngine implements BlockEngine {
+    private static final int Nr = 10;
+
+    // Preferred width, but at least one whole block
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() >= 16
+            ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_128;
+    private static final int LANES = SPECIES.length();
+
+    // Whole blocks per vector
+    private static final int BLOCKS = LANES / 16;
+
+    // Simplified S-Box in lanes 0-15, indexed by the low nibble
+    private static final ByteVector SBOX = ByteVector.fromArray(SPECIES, sboxLanes(), 0);
+
+    private static final VectorShuffle<Byte> SHIFT_ROWS = shuffle((c, r) -> ((c + r) & 3) * 4 + r);
+
+    // Row r of a column from row r + 1, r + 2 and r + 3
+    private static final VectorShuffle<Byte> ROT1 = shuffle((c, r) -> c * 4 + ((r + 1) & 3));
+    private static final VectorShuffle<Byte> ROT2 = shuffle((c, r) -> c * 4 + ((r + 2) & 3));
+    private static final VectorShuffle<Byte> ROT3 = shuffle((c, r) -> c * 4 + ((r + 3) & 3));
+
+    // Instantiated reflectively by BlockEngines
+    VectorEngine() {
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public boolean supports(SimplifiedAES128.Variant variant) {
+        return variant == SimplifiedAES128.Variant.SIMPLIFIED;
+    }
+
+    /**
+     * Lays the key schedule out as one vector per round, in block byte
+     * order and repeated for every block of the vector
+     */
+    @Override
+    public Object prepareKey(int[] w) {
+        byte[] rk = new byte[(Nr + 1) * LANES];
+        for (int round = 0; round <= Nr; round++) {
+            for (int i = 0; i < LANES; i++) {
+                int word = w[round * 4 + (i & 15) / 4];
+                rk[round * LANES + i] = (byte) (word >>> (24 - 8 * (i & 3)));
+            }
+        }
+        return rk;
+    }
+
+    @Override
+    public void encryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        if (blocks >= BLOCKS) {
+            byte[] rk = (byte[]) cipher.preparedKey(this);
+            for (; blocks >= BLOCKS; blocks -= BLOCKS, inOff += LANES, outOff += LANES) {
+                ByteVector s = ByteVector.fromArray(SPECIES, in, inOff)
+                        .lanewise(VectorOperators.XOR, ByteVector.fromArray(SPECIES, rk, 0));
+                for (int round = 1; round < Nr; round++) {
+                    s = mixColumns(subShift(s))
+                            .lanewise(VectorOperators.XOR, ByteVector.fromArray(SPECIES, rk, round * LANES));
+                }
+                subShift(s).lanewise(VectorOperators.XOR, ByteVector.fromArray(SPECIES, rk, Nr * LANES))
+                        .intoArray(out, outOff);
+            }
+        }
+        TableEngine.INSTANCE.encryptBlocks(cipher, in, inOff, out, outOff, blocks);
+    }
+
+    @Override
+    public void decryptBlocks(SimplifiedAES128 cipher, byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        TableEngine.INSTANCE.decryptBlocks(cipher, in, inOff, out, outOff, blocks);
+    }
+
+    /**
+     * SubBytes on the low nibble, then ShiftRows
+     */
+    private static ByteVector subShift(ByteVector s) {
+        return s.and((byte) 0x0F).selectFrom(SBOX).rearrange(SHIFT_ROWS);
+    }
+
+    /**
+     * Simplified MixColumns: row r becomes 2*a_r ^ a_(r+1) ^ a_(r+2) ^ a_(r+3)
+     */
+    private static ByteVector mixColumns(ByteVector a) {
+        // xtime: shift left, reduce by 0x1b where the top bit was set
+        ByteVector twice = a.lanewise(VectorOperators.LSHL, 1)
+                .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ASHR, 7).and((byte) 0x1b));
+        return twice.lanewise(VectorOperators.XOR, a.rearrange(ROT1))
+                .lanewise(VectorOperators.XOR, a.rearrange(ROT2))
+                .lanewise(VectorOperators.XOR, a.rearrange(ROT3));
+    }
+
+    private static byte[] sboxLanes() {
+        byte[] lanes = new byte[LANES];
+        for (int x = 0; x < 16; x++) {
+            lanes[x] = (byte) SimplifiedAES128.tables(SimplifiedAES128.Variant.SIMPLIFIED).sbox[x];
+        }
+        return lanes;
+    }
+
+    /**
+     * Builds a shuffle that applies the same byte permutation to every
+     * block; {@code source} maps (column, row) to a byte index in the block
+     */
+    private static VectorShuffle<Byte> shuffle(IntBinaryOperator source) {
+        int[] index = new int[LANES];
+        for (int i = 0; i < LANES; i++) {
+            int block = i & ~15;
+            index[i] = block + source.applyAsInt((i & 15) / 4, i & 3);
+        }
+        return VectorShuffle.fromArray(SPECIES, index, 0);
+    }
+}
@@ -0,0 +1,223 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * XTS tweakable mode (IEEE 1619) over SimplifiedAES128, for fixed-size
+ * sectors of a block store.
+ *
+ * Each sector is encrypted on its own: the sector number, as a 128-bit
+ * little-endian value, is encrypted with the tweak cipher, and block j of
+ * the sector is XORed with that tweak times x^j in GF(2^128) before and
+ * after the data cipher. Any sector can be rewritten without touching the
+ * others, and all blocks of a sector go through one multi-block engine call.
+ *
+ * The batch methods spread runs of sectors of 256 KiB or more across a
+ * ForkJoinPool (the common pool unless one is given). Sector work uses a
+ * per-thread scratch buffer, so nothing is allocated per sector.
+ *
+ * Sector sizes must be a multiple of 16; ciphertext stealing is not
+ * supported. Only the full variant round-trips. Instances are safe for
+ * concurrent use.
+ */
+public class XtsMode {
+    // Batches at least this long are split across the ForkJoinPool
+    private static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    // Bytes of sectors handled by one leaf task
+    private static final int TASK_CHUNK = 64 * 1024;
+
+    // Reads and writes tweak and data words, byte 0 in the low bits
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final SimplifiedAES128 dataCipher;
+    private final SimplifiedAES128 tweakCipher;
+    private final int sectorSize;
+    private final ForkJoinPool pool;
+
+    // One sector of whitened data followed by the encrypted tweak
+    private final ThreadLocal<byte[]> scratch;
+
+    /**
+     * @param dataCipher Cipher keyed with the data key
+     * @param tweakCipher Cipher keyed with the tweak key
+     * @param sectorSize Bytes per sector, a positive multiple of 16
+     */
+    public XtsMode(SimplifiedAES128 dataCipher, SimplifiedAES128 tweakCipher, int sectorSize) {
+        this(dataCipher, tweakCipher, sectorSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param dataCipher Cipher keyed with the data key
+     * @param tweakCipher Cipher keyed with the tweak key
+     * @param sectorSize Bytes per sector, a positive multiple of 16
+     * @param pool Pool for batches of at least 256 KiB
+     */
+    public XtsMode(SimplifiedAES128 dataCipher, SimplifiedAES128 tweakCipher, int sectorSize, ForkJoinPool pool) {
+        if (sectorSize <= 0 || (sectorSize & 15) != 0) {
+            throw new IllegalArgumentException("Sector size must be a positive multiple of 16, got " + sectorSize);
+        }
+        this.dataCipher = dataCipher;
+        this.tweakCipher = tweakCipher;
+        this.sectorSize = sectorSize;
+        this.pool = pool;
+        this.scratch = ThreadLocal.withInitial(() -> new byte[sectorSize + 16]);
+    }
+
+    /**
+     * @return Bytes per sector
+     */
+    public int sectorSize() {
+        return sectorSize;
+    }
+
+    /**
+     * Encrypts one sector. Input and output may be the same region.
+     * @param sector Sector number, the tweak
+     * @param in Source array
+     * @param inOff Offset of the sector in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the sector in {@code out}
+     */
+    public void encryptSector(long sector, byte[] in, int inOff, byte[] out, int outOff) {
+        sector(sector, in, inOff, out, outOff, true, scratch.get());
+    }
+
+    /**
+     * Decrypts one sector. Input and output may be the same region.
+     * @param sector Sector number, the tweak
+     * @param in Source array
+     * @param inOff Offset of the sector in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the sector in {@code out}
+     */
+    public void decryptSector(long sector, byte[] in, int inOff, byte[] out, int outOff) {
+        sector(sector, in, inOff, out, outOff, false, scratch.get());
+    }
+
+    /**
+     * Encrypts consecutive sectors. Input and output may be the same region.
+     * @param firstSector Sector number of the first sector
+     * @param in Source array
+     * @param inOff Offset of the first sector in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the first sector in {@code out}
+     * @param sectors Number of sectors
+     */
+    public void encryptSectors(long firstSector, byte[] in, int inOff, byte[] out, int outOff, int sectors) {
+        sectors(firstSector, in, inOff, out, outOff, sectors, true);
+    }
+
+    /**
+     * Decrypts consecutive sectors. Input and output may be the same region.
+     * @param firstSector Sector number of the first sector
+     * @param in Source array
+     * @param inOff Offset of the first sector in {@code in}
+     * @param out Destination array
+     * @param outOff Offset of the first sector in {@code out}
+     * @param sectors Number of sectors
+     */
+    public void decryptSectors(long firstSector, byte[] in, int inOff, byte[] out, int outOff, int sectors) {
+        sectors(firstSector, in, inOff, out, outOff, sectors, false);
+    }
+
+    private void sectors(long firstSector, byte[] in, int inOff, byte[] out, int outOff, int sectors,
+                         boolean encrypt) {
+        if ((long) sectors * sectorSize >= PARALLEL_THRESHOLD) {
+            pool.invoke(new SectorTask(firstSector, in, inOff, out, outOff, sectors, encrypt));
+        } else {
+            run(firstSector, in, inOff, out, outOff, sectors, encrypt);
+        }
+    }
+
+    /**
+     * Processes consecutive sectors on the calling thread
+     */
+    private void run(long firstSector, byte[] in, int inOff, byte[] out, int outOff, int sectors, boolean encrypt) {
+        byte[] buf = scratch.get();
+        for (int s = 0; s < sectors; s++) {
+            int delta = s * sectorSize;
+            sector(firstSector + s, in, inOff + delta, out, outOff + delta, encrypt, buf);
+        }
+    }
+
+    /**
+     * Whitens the sector into the scratch buffer with the tweak sequence,
+     * runs the data cipher over all its blocks at once, then whitens again
+     * into the output. The tweak sequence is cheap enough to generate twice.
+     */
+    private void sector(long sector, byte[] in, int inOff, byte[] out, int outOff, boolean encrypt, byte[] buf) {
+        int t = sectorSize;
+        LONG_LE.set(buf, t, sector);
+        LONG_LE.set(buf, t + 8, 0L);
+        tweakCipher.encryptBlock(buf, t, buf, t);
+
+        long lo = (long) LONG_LE.get(buf, t);
+        long hi = (long) LONG_LE.get(buf, t + 8);
+        for (int j = 0; j < sectorSize; j += 16) {
+            LONG_LE.set(buf, j, (long) LONG_LE.get(in, inOff + j) ^ lo);
+            LONG_LE.set(buf, j + 8, (long) LONG_LE.get(in, inOff + j + 8) ^ hi);
+            // Multiply the tweak by x, reducing by x^128 = x^7 + x^2 + x + 1
+            long carry = hi >> 63;
+            hi = (hi << 1) | (lo >>> 63);
+            lo = (lo << 1) ^ (carry & 0x87);
+        }
+
+        if (encrypt) {
+            dataCipher.encryptBlocks(buf, 0, buf, 0, sectorSize >>> 4);
+        } else {
+            dataCipher.decryptBlocks(buf, 0, buf, 0, sectorSize >>> 4);
+        }
+
+        lo = (long) LONG_LE.get(buf, t);
+        hi = (long) LONG_LE.get(buf, t + 8);
+        for (int j = 0; j < sectorSize; j += 16) {
+            LONG_LE.set(out, outOff + j, (long) LONG_LE.get(buf, j) ^ lo);
+            LONG_LE.set(out, outOff + j + 8, (long) LONG_LE.get(buf, j + 8) ^ hi);
+            long carry = hi >> 63;
+            hi = (hi << 1) | (lo >>> 63);
+            lo = (lo << 1) ^ (carry & 0x87);
+        }
+    }
+
+    /**
+     * Splits a run of sectors in halves until it fits one chunk
+     */
+    private final class SectorTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long firstSector;
+        private final byte[] in;
+        private final int inOff;
+        private final byte[] out;
+        private final int outOff;
+        private final int sectors;
+        private final boolean encrypt;
+
+        SectorTask(long firstSector, byte[] in, int inOff, byte[] out, int outOff, int sectors, boolean encrypt) {
+            this.firstSector = firstSector;
+            this.in = in;
+            this.inOff = inOff;
+            this.out = out;
+            this.outOff = outOff;
+            this.sectors = sectors;
+            this.encrypt = encrypt;
+        }
+
+        @Override
+        protected void compute() {
+            if (sectors == 1 || (long) sectors * sectorSize <= TASK_CHUNK) {
+                run(firstSector, in, inOff, out, outOff, sectors, encrypt);
+                return;
+            }
+            int half = sectors >>> 1;
+            int delta = half * sectorSize;
+            invokeAll(new SectorTask(firstSector, in, inOff, out, outOff, half, encrypt),
+                      new SectorTask(firstSector + half, in, inOff + delta, out, outOff + delta,
+                                     sectors - half, encrypt));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import bench.CipherTarget;
+
+/**
+ * SimplifiedAES128 behind the JMH benchmarks' {@link CipherTarget}
+ * interface; see there for why the indirection exists
+ */
+public class JmhCipherTarget implements CipherTarget {
+    private final SimplifiedAES128.Variant variant;
+    private final SimplifiedAES128 cipher;
+
+    /**
+     * @param variant Name of a SimplifiedAES128.Variant constant
+     * @param key The 16-byte key
+     */
+    public JmhCipherTarget(String variant, byte[] key) throws InterruptedException {
+        this.variant = SimplifiedAES128.Variant.valueOf(variant);
+        this.cipher = new SimplifiedAES128(key, this.variant);
+        BlockEngines.awaitCalibration(this.variant);
+    }
+
+    @Override
+    public void encryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        cipher.encryptBlock(in, inOff, out, outOff);
+    }
+
+    @Override
+    public void decryptBlock(byte[] in, int inOff, byte[] out, int outOff) {
+        cipher.decryptBlock(in, inOff, out, outOff);
+    }
+
+    @Override
+    public void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        cipher.encryptBlocks(in, inOff, out, outOff, blocks);
+    }
+
+    @Override
+    public void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks) {
+        cipher.decryptBlocks(in, inOff, out, outOff, blocks);
+    }
+
+    @Override
+    public Object newCipher(byte[] key) {
+        return new SimplifiedAES128(key, variant);
+    }
+
+    @Override
+    public String toString() {
+        return variant + " on " + cipher.engine();
+    }
+}
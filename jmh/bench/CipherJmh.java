@@ -0,0 +1,142 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH counterparts of the core CipherBenchmark cases: single-block latency,
+ * bulk ECB throughput and key setup, for both variants. The cipher is
+ * reached through {@link CipherTarget}.
+ *
+ * Every benchmark runs in forked JVMs, so the profiles one case leaves in
+ * the JIT do not skew the next the way they can in CipherBenchmark's single
+ * JVM. Use these numbers when the two disagree. Add -prof gc for the
+ * allocation rate per operation.
+ *
+ * Bulk sizes run from 1 KiB to 64 MiB, as in CipherBenchmark's default -s
+ * list; -p size=... picks others. Cases run on one thread by default
+ * (@Threads below); -t overrides it for a run, e.g. -t 4, and each thread
+ * gets its own block, buffer and key state.
+ *
+ *   mvn -B package
+ *   java -jar target/benchmarks.jar -prof gc
+ *   java -jar target/benchmarks.jar CipherJmh.bulk -p size=65536
+ *   java -jar target/benchmarks.jar CipherJmh.bulk -t 4
+ */
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+public class CipherJmh {
+
+    private static final byte[] KEY = "1234567890abcdef".getBytes();
+
+    /**
+     * One cipher per variant, created after its engine calibration settled
+     */
+    @State(Scope.Benchmark)
+    public static class CipherState {
+        @Param({"SIMPLIFIED", "FULL"})
+        public String variant;
+
+        CipherTarget cipher;
+
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            cipher = CipherTarget.create(variant, KEY);
+        }
+    }
+
+    /**
+     * A thread's own block for the latency cases
+     */
+    @State(Scope.Thread)
+    public static class BlockState {
+        final byte[] block = randomBytes(16);
+    }
+
+    /**
+     * A thread's own buffer for the bulk cases
+     */
+    @State(Scope.Thread)
+    public static class BulkState {
+        @Param({"1024", "65536", "1048576", "67108864"})
+        public int size;
+
+        byte[] buffer;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            buffer = randomBytes(size);
+        }
+    }
+
+    /**
+     * A thread's own key, changed before every setup so nothing is cached
+     */
+    @State(Scope.Thread)
+    public static class KeyState {
+        final byte[] key = KEY.clone();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] encryptBlock(CipherState c, BlockState b) {
+        c.cipher.encryptBlock(b.block, 0, b.block, 0);
+        return b.block;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] decryptBlock(CipherState c, BlockState b) {
+        c.cipher.decryptBlock(b.block, 0, b.block, 0);
+        return b.block;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public byte[] bulkEncrypt(CipherState c, BulkState b) {
+        c.cipher.encryptBlocks(b.buffer, 0, b.buffer, 0, b.size / 16);
+        return b.buffer;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public byte[] bulkDecrypt(CipherState c, BulkState b) {
+        c.cipher.decryptBlocks(b.buffer, 0, b.buffer, 0, b.size / 16);
+        return b.buffer;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void keySetup(CipherState c, KeyState k, Blackhole bh) {
+        k.key[0]++;
+        bh.consume(c.cipher.newCipher(k.key));
+    }
+
+    static byte[] randomBytes(int n) {
+        byte[] b = new byte[n];
+        new Random(n).nextBytes(b);
+        return b;
+    }
+}
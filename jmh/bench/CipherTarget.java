@@ -0,0 +1,41 @@
+package bench;
+
+/**
+ * The cipher operations the JMH benchmarks call.
+ *
+ * JMH rejects benchmark classes in the default package, and a named package
+ * cannot refer to the default-package cipher classes, so the benchmarks
+ * talk to the cipher through this interface. The implementation,
+ * JmhCipherTarget, lives in the default package next to the cipher and is
+ * looked up once per trial. It is the only implementation loaded, so the
+ * JIT inlines the interface calls.
+ */
+public interface CipherTarget {
+
+    void encryptBlock(byte[] in, int inOff, byte[] out, int outOff);
+
+    void decryptBlock(byte[] in, int inOff, byte[] out, int outOff);
+
+    void encryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks);
+
+    void decryptBlocks(byte[] in, int inOff, byte[] out, int outOff, int blocks);
+
+    /**
+     * Expands a new key with the same variant
+     * @param key The 16-byte key
+     * @return The new cipher
+     */
+    Object newCipher(byte[] key);
+
+    /**
+     * Creates a cipher once the variant's engine calibration has finished
+     * @param variant Name of a SimplifiedAES128.Variant constant
+     * @param key The 16-byte key
+     * @return The cipher behind this interface
+     */
+    static CipherTarget create(String variant, byte[] key) throws ReflectiveOperationException {
+        return (CipherTarget) Class.forName("JmhCipherTarget")
+                .getConstructor(String.class, byte[].class)
+                .newInstance(variant, key);
+    }
+}